@@ -0,0 +1,155 @@
+package DAWG;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+//a dictionary with a companion DAWG of its words spelled backwards, so that words can be found by how they end as
+//cheaply as by how they start. A suffix of a word is a prefix of the word reversed, so wordsWithSuffix is just
+//wordsWithPrefix on the reversed graph: it only walks the suffix and the words it returns, however big the dictionary
+//is.
+//
+//Both graphs are ordinary DAWGs of the same node type, so they're built, frozen, written and read like any other. To
+//save one, write forward() and reversed() separately, and pass both back to AffixDAWG(DAWG, DAWG) after reading them.
+//
+//Words are reversed with StringBuilder.reverse, which keeps surrogate pairs in order, so a supplementary character is
+//still a pair of the same two chars in the reversed graph.
+public class AffixDAWG {
+
+    private final DAWG forward;
+    private final DAWG reversed;
+
+    public AffixDAWG(List<String> words) {
+        this(words, DAWG.ARRAY);
+    }
+
+    //builds both graphs from the one list of words, which doesn't need to be sorted
+    public AffixDAWG(List<String> words, int nodeType) {
+
+        List<String> reversedWords = new ArrayList<>(words.size());
+        for (String word : words) {
+            reversedWords.add(reverse(word));
+        }
+
+        this.forward = new DAWG(words, nodeType);
+        this.reversed = new DAWG(reversedWords, nodeType);
+    }
+
+    //pairs a dictionary with one of the same words reversed, such as two that were written out and read back in
+    public AffixDAWG(DAWG forward, DAWG reversed) {
+        if (forward.size() != reversed.size()) {
+            throw new IllegalArgumentException("the reversed dictionary has " + reversed.size()
+                    + " words, but the dictionary has " + forward.size());
+        }
+        this.forward = forward;
+        this.reversed = reversed;
+    }
+
+    //adds a reversed companion to an existing dictionary. Building it walks every word once.
+    public AffixDAWG(DAWG forward) {
+
+        List<String> reversedWords = new ArrayList<>(forward.size());
+        for (String word : forward) {
+            reversedWords.add(reverse(word));
+        }
+
+        this.forward = forward;
+        this.reversed = new DAWG(reversedWords, forward.nodeType());
+    }
+
+    //reads both graphs, as written by writeBinary or writeOut on forward() and reversed()
+    public AffixDAWG(InputStream forward, InputStream reversed, int nodeType) throws InvalidDictionaryFormatException {
+        this(new DAWG(forward, nodeType), new DAWG(reversed, nodeType));
+    }
+
+    public DAWG forward() {
+        return forward;
+    }
+
+    //the same words spelled backwards
+    public DAWG reversed() {
+        return reversed;
+    }
+
+    public boolean containsWord(CharSequence word) {
+        return forward.containsWord(word);
+    }
+
+    public int size() {
+        return forward.size();
+    }
+
+    //adds the word to both graphs. Returns false if it was already there.
+    public boolean add(CharSequence word) {
+        if (!forward.add(word)) return false;
+        reversed.add(reverse(word));
+        return true;
+    }
+
+    //removes the word from both graphs. Returns false if it wasn't there.
+    public boolean remove(CharSequence word) {
+        if (!forward.remove(word)) return false;
+        reversed.remove(reverse(word));
+        return true;
+    }
+
+    public List<String> wordsWithPrefix(CharSequence prefix, int limit) {
+        return forward.wordsWithPrefix(prefix, limit);
+    }
+
+    //returns up to limit words that end with the suffix, sorted by how they're spelled backwards, so words that share
+    //more of their ending come together. Like wordsWithPrefix, this only costs the suffix and the words it returns.
+    public List<String> wordsWithSuffix(CharSequence suffix, int limit) {
+
+        List<String> words = reversed.wordsWithPrefix(reverse(suffix), limit);
+        for (int i = 0; i < words.size(); i++) {
+            words.set(i, reverse(words.get(i)));
+        }
+        return words;
+    }
+
+    public int countWithSuffix(CharSequence suffix) {
+        return reversed.countWithPrefix(reverse(suffix));
+    }
+
+    //returns up to limit words that start with the prefix and end with the suffix, in sorted order. The prefix and the
+    //suffix may overlap, so "ab" is returned for prefix "ab" and suffix "b".
+    //
+    //The word counts on the nodes the prefix and the suffix lead to say how many words each of them matches, so only
+    //the smaller side is walked, checking each of its words against the other side's condition. That costs no more
+    //than the rarer of the two would on its own.
+    public List<String> wordsWithPrefixAndSuffix(CharSequence prefix, CharSequence suffix, int limit) {
+
+        String start = prefix.toString();
+        String end = suffix.toString();
+        List<String> words = new ArrayList<>();
+
+        int withPrefix = forward.countWithPrefix(start);
+        int withSuffix = countWithSuffix(end);
+        if (withPrefix == 0 || withSuffix == 0 || limit <= 0) return words;
+
+        if (withPrefix <= withSuffix) {
+            //already in sorted order, so it can stop at the limit
+            Iterator<String> matches = forward.wordsWithPrefix(start).iterator();
+            while (words.size() < limit && matches.hasNext()) {
+                String word = matches.next();
+                if (word.endsWith(end)) words.add(word);
+            }
+        } else {
+            for (String word : wordsWithSuffix(end, withSuffix)) {
+                if (word.startsWith(start)) words.add(word);
+            }
+            Collections.sort(words);
+            if (words.size() > limit) words = new ArrayList<>(words.subList(0, limit));
+        }
+
+        return words;
+    }
+
+    private static String reverse(CharSequence word) {
+        return new StringBuilder(word).reverse().toString();
+    }
+
+}
@@ -0,0 +1,285 @@
+package DAWG;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+//a graph stored in the binary dictionary format, read in place from a ByteBuffer. Lookups only ever read ints and chars
+//out of the buffer, so nothing is allocated per node no matter where the buffer lives. The buffer can be a heap buffer,
+//a mapped file or a direct buffer, which is how DAWG.OFF_HEAP keeps the whole graph out of the Java heap.
+//
+//The format is big endian:
+//  int    magic ("DAWG")
+//  short  version
+//  short  flags (WORD_COUNTS is the only one so far)
+//  int    node count
+//  int    edge count
+//  int    root node id
+//  int[]  first edge of each node, plus one entry holding the edge count
+//  int[]  target node of each edge
+//  char[] label of each edge, sorted within each node
+//  byte[] terminal flags, one bit per node
+//  int[]  number of words at or below each node, if the WORD_COUNTS flag is set
+//  int    CRC32 of everything before it
+final class BufferGraph extends StoredGraph {
+
+    static final int MAGIC = 0x44415747;
+    static final short VERSION = 1;
+
+    //set if the file has a table of word counts. Files from before the counts were added don't, so the counts are
+    //worked out when they're opened instead.
+    static final short WORD_COUNTS = 1;
+
+    private static final int HEADER_SIZE = 20;
+
+    //null once the graph has been released. Volatile so that a close on one thread is seen by queries started on any
+    //other thread after it, rather than whenever that thread happens to reload the field.
+    private volatile ByteBuffer buffer;
+
+    private final int nodeCount;
+    private final int edgeCount;
+    private final int root;
+
+    private final int firstEdgeOffset;
+    private final int targetOffset;
+    private final int labelOffset;
+    private final int terminalOffset;
+    //-1 if the counts aren't stored in the buffer
+    private final int wordCountOffset;
+    private final int[] computedWordCounts;
+
+    BufferGraph(ByteBuffer buffer) throws InvalidDictionaryFormatException {
+
+        this.buffer = buffer;
+
+        if (buffer.capacity() < HEADER_SIZE + 4 || buffer.getInt(0) != MAGIC) {
+            throw new InvalidDictionaryFormatException("not a binary dictionary");
+        }
+        if (buffer.getShort(4) != VERSION) {
+            throw new InvalidDictionaryFormatException("unsupported binary dictionary version " + buffer.getShort(4));
+        }
+
+        short flags = buffer.getShort(6);
+        nodeCount = buffer.getInt(8);
+        edgeCount = buffer.getInt(12);
+        root = buffer.getInt(16);
+
+        if (nodeCount <= 0 || edgeCount < 0 || root < 0 || root >= nodeCount
+                || size(nodeCount, edgeCount, flags) != buffer.capacity()) {
+            throw new InvalidDictionaryFormatException("binary dictionary is truncated or has a corrupt header");
+        }
+
+        firstEdgeOffset = HEADER_SIZE;
+        targetOffset = firstEdgeOffset + 4 * (nodeCount + 1);
+        labelOffset = targetOffset + 4 * edgeCount;
+        terminalOffset = labelOffset + 2 * edgeCount;
+        wordCountOffset = (flags & WORD_COUNTS) != 0 ? terminalOffset + (nodeCount + 7) / 8 : -1;
+
+        int checksumOffset = buffer.capacity() - 4;
+        ByteBuffer contents = buffer.duplicate();
+        contents.position(0).limit(checksumOffset);
+        CRC32 crc = new CRC32();
+        crc.update(contents);
+        if ((int) crc.getValue() != buffer.getInt(checksumOffset)) {
+            throw new InvalidDictionaryFormatException("binary dictionary checksum doesn't match");
+        }
+
+        //the checksum only catches damage, so make sure every edge range and target is inside the tables before
+        //anything follows them
+        boolean valid = buffer.getInt(firstEdgeOffset) == 0 && buffer.getInt(firstEdgeOffset + 4 * nodeCount) == edgeCount;
+        for (int node = 0; valid && node < nodeCount; node++) {
+            valid = buffer.getInt(firstEdgeOffset + 4 * node) <= buffer.getInt(firstEdgeOffset + 4 * (node + 1));
+        }
+        for (int edge = 0; valid && edge < edgeCount; edge++) {
+            int target = buffer.getInt(targetOffset + 4 * edge);
+            valid = target >= 0 && target < nodeCount;
+        }
+        if (!valid) throw new InvalidDictionaryFormatException("binary dictionary is corrupt");
+
+        computedWordCounts = wordCountOffset < 0 ? countWords() : null;
+    }
+
+    //copies a graph into a newly allocated buffer outside the Java heap
+    static BufferGraph allocateDirect(StoredGraph graph) {
+
+        long size = size(graph.nodeCount(), graph.edgeCount(), WORD_COUNTS);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("graph is too large for a single buffer");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+
+        try {
+            write(graph, new BufferOutputStream(buffer));
+            return new BufferGraph(buffer);
+        } catch (IOException | InvalidDictionaryFormatException e) {
+            //we just wrote it ourselves, so this can't happen unless the buffer is too small
+            throw new IllegalStateException(e);
+        }
+    }
+
+    //reads a binary graph straight into a buffer outside the Java heap, without building anything on the heap first
+    static BufferGraph readDirect(InputStream input) throws IOException, InvalidDictionaryFormatException {
+
+        byte[] header = new byte[HEADER_SIZE];
+        int read = 0;
+        while (read < HEADER_SIZE) {
+            int count = input.read(header, read, HEADER_SIZE - read);
+            if (count < 0) throw new InvalidDictionaryFormatException("binary dictionary is truncated");
+            read += count;
+        }
+
+        ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+        short flags = headerBuffer.getShort(6);
+        int nodeCount = headerBuffer.getInt(8);
+        int edgeCount = headerBuffer.getInt(12);
+        if (headerBuffer.getInt(0) != MAGIC || nodeCount <= 0 || edgeCount < 0) {
+            throw new InvalidDictionaryFormatException("not a binary dictionary");
+        }
+
+        long size = size(nodeCount, edgeCount, flags);
+        if (size > Integer.MAX_VALUE) {
+            throw new InvalidDictionaryFormatException("binary dictionary is too large for a single buffer");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+        buffer.put(header);
+
+        ReadableByteChannel channel = Channels.newChannel(input);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) throw new InvalidDictionaryFormatException("binary dictionary is truncated");
+        }
+
+        return new BufferGraph(buffer);
+    }
+
+    //the number of bytes a graph with this many nodes and edges takes up in the binary format
+    static long size(int nodeCount, int edgeCount, short flags) {
+        long wordCounts = (flags & WORD_COUNTS) != 0 ? 4L * nodeCount : 0;
+        return HEADER_SIZE + 4L * (nodeCount + 1) + 6L * edgeCount + (nodeCount + 7) / 8 + wordCounts + 4;
+    }
+
+    static void write(StoredGraph graph, OutputStream output) throws IOException {
+
+        CRC32 crc = new CRC32();
+        BufferedOutputStream buffered = new BufferedOutputStream(output);
+        DataOutputStream out = new DataOutputStream(new CheckedOutputStream(buffered, crc));
+
+        int nodeCount = graph.nodeCount();
+        int edgeCount = graph.edgeCount();
+
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort(WORD_COUNTS);
+        out.writeInt(nodeCount);
+        out.writeInt(edgeCount);
+        out.writeInt(graph.root());
+
+        for (int node = 0; node <= nodeCount; node++) out.writeInt(graph.firstEdge(node));
+        for (int edge = 0; edge < edgeCount; edge++) out.writeInt(graph.target(edge));
+        for (int edge = 0; edge < edgeCount; edge++) out.writeChar(graph.label(edge));
+
+        byte[] terminal = new byte[(nodeCount + 7) / 8];
+        for (int node = 0; node < nodeCount; node++) {
+            if (graph.isTerminal(node)) terminal[node >>> 3] |= 1 << (node & 7);
+        }
+        out.write(terminal);
+        for (int node = 0; node < nodeCount; node++) out.writeInt(graph.wordCount(node));
+        out.flush();
+
+        //the checksum itself goes around the CheckedOutputStream
+        new DataOutputStream(buffered).writeInt((int) crc.getValue());
+        buffered.flush();
+    }
+
+    //copies the graph out exactly as it is stored
+    void writeTo(OutputStream output) throws IOException {
+        ByteBuffer contents = buffer().duplicate();
+        contents.clear();
+        Channels.newChannel(output).write(contents);
+        output.flush();
+    }
+
+    //drops the buffer so the graph can't be used again. The memory itself isn't freed here: another thread may still be
+    //part way through a query on it (an old ConcurrentDAWG version, say), so direct and mapped buffers are left to the
+    //garbage collector, which only frees them once nothing can reach them.
+    @Override
+    void release() {
+        buffer = null;
+    }
+
+    private ByteBuffer buffer() {
+        ByteBuffer buffer = this.buffer;
+        if (buffer == null) throw new IllegalStateException("dictionary has been closed");
+        return buffer;
+    }
+
+    @Override
+    int root() {
+        return root;
+    }
+
+    @Override
+    int nodeCount() {
+        return nodeCount;
+    }
+
+    @Override
+    int edgeCount() {
+        return edgeCount;
+    }
+
+    @Override
+    boolean isTerminal(int node) {
+        return (buffer().get(terminalOffset + (node >>> 3)) & (1 << (node & 7))) != 0;
+    }
+
+    @Override
+    int wordCount(int node) {
+        if (wordCountOffset < 0) return computedWordCounts[node];
+        return buffer().getInt(wordCountOffset + 4 * node);
+    }
+
+    @Override
+    int firstEdge(int node) {
+        return buffer().getInt(firstEdgeOffset + 4 * node);
+    }
+
+    @Override
+    char label(int edge) {
+        return buffer().getChar(labelOffset + 2 * edge);
+    }
+
+    @Override
+    int target(int edge) {
+        return buffer().getInt(targetOffset + 4 * edge);
+    }
+
+    //writes into a ByteBuffer, which must have room for everything that is written
+    private static class BufferOutputStream extends OutputStream {
+
+        private final ByteBuffer buffer;
+
+        BufferOutputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(int b) {
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            buffer.put(bytes, offset, length);
+        }
+    }
+
+}
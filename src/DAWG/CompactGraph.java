@@ -0,0 +1,412 @@
+package DAWG;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+//a graph with its chains of single-edge nodes merged into edges with several letters each, in the manner of a
+//compacted DAWG. Most nodes near the ends of words have one edge, aren't the end of a word and have only one parent;
+//such a node is only ever passed through, so it doesn't get a node of its own. Instead the letters along each chain
+//are kept together in one shared label pool, and the edge that leads into the chain points at the chain's place in
+//the pool. This is the storage behind DAWG.COMPACTED.
+//
+//Nodes with more than one parent are kept even when they only have one edge. Merging them too would mean copying their
+//chain into the pool once per parent; keeping them means every node of the original graph is either a kept node or
+//exactly one place in the pool.
+//
+//That also lets the graph still be read one letter at a time like any other StoredGraph. Kept nodes are numbered
+//0 .. keptNodes - 1 (the root is 0), and pool position p is node keptNodes + p, with a single edge numbered
+//keptEdges + p. Walking those ids gives back the original graph exactly, so the generic code (enumeration, indexOf,
+//searches, statistics, writing the binary format) works unchanged. containsWord is the one that uses the compacted form
+//directly: it matches a whole chain against the word with a loop over the pool instead of a lookup per letter.
+final class CompactGraph extends StoredGraph {
+
+    static final int MAGIC = 0x44415743;
+    static final short VERSION = 1;
+
+    //node and edge ids are ints, and the first-edge table has one slot more than there are kept nodes
+    private static final long MAX_COUNT = Integer.MAX_VALUE;
+    private static final int READ_CHUNK = 1 << 16;
+
+    private final int keptNodes;
+    private final int keptEdges;
+
+    //the kept nodes and their edges, laid out like FlatGraph. A target of keptNodes or more leads into the pool.
+    private final int[] firstEdge;
+    private final char[] edgeLabels;
+    private final int[] edgeTarget;
+    private final BitSet terminal;
+    private final int[] wordCount;
+
+    //the letters of every chain, one after another. chainEnd marks each chain's last letter, and chainTarget[p] is the
+    //kept node that the chain through p leads to.
+    private final char[] pool;
+    private final BitSet chainEnd;
+    private final int[] chainTarget;
+
+    CompactGraph(StoredGraph graph) {
+
+        int nodeCount = graph.nodeCount();
+        int root = graph.root();
+
+        int[] parents = new int[nodeCount];
+        for (int edge = 0; edge < graph.edgeCount(); edge++) {
+            parents[graph.target(edge)]++;
+        }
+
+        BitSet merged = new BitSet(nodeCount);
+        for (int node = 0; node < nodeCount; node++) {
+            if (node != root && !graph.isTerminal(node) && graph.numChildren(node) == 1 && parents[node] == 1) {
+                merged.set(node);
+            }
+        }
+
+        keptNodes = nodeCount - merged.cardinality();
+        int poolSize = merged.cardinality();
+        keptEdges = graph.edgeCount() - poolSize;
+
+        firstEdge = new int[keptNodes + 1];
+        edgeLabels = new char[keptEdges];
+        edgeTarget = new int[keptEdges];
+        terminal = new BitSet(keptNodes);
+        wordCount = new int[keptNodes];
+        pool = new char[poolSize];
+        chainEnd = new BitSet(poolSize);
+        chainTarget = new int[poolSize];
+
+        //number the kept nodes breadth first, as they're reached
+        int[] ids = new int[nodeCount];
+        Arrays.fill(ids, -1);
+        int[] queue = new int[keptNodes];
+        int tail = 0;
+        ids[root] = 0;
+        queue[tail++] = root;
+
+        int edge = 0;
+        int position = 0;
+        for (int head = 0; head < keptNodes; head++) {
+
+            int node = queue[head];
+            firstEdge[head] = edge;
+            if (graph.isTerminal(node)) terminal.set(head);
+            wordCount[head] = graph.wordCount(node);
+
+            for (int from = graph.firstEdge(node); from < graph.firstEdge(node + 1); from++) {
+
+                int target = graph.target(from);
+                edgeLabels[edge] = graph.label(from);
+
+                if (merged.get(target)) {
+                    //copy the chain's letters into the pool until it reaches a node that's kept
+                    int start = position;
+                    edgeTarget[edge] = keptNodes + start;
+                    while (merged.get(target)) {
+                        int only = graph.firstEdge(target);
+                        pool[position++] = graph.label(only);
+                        target = graph.target(only);
+                    }
+                    chainEnd.set(position - 1);
+                    if (ids[target] < 0) {
+                        ids[target] = tail;
+                        queue[tail++] = target;
+                    }
+                    Arrays.fill(chainTarget, start, position, ids[target]);
+                } else {
+                    if (ids[target] < 0) {
+                        ids[target] = tail;
+                        queue[tail++] = target;
+                    }
+                    edgeTarget[edge] = ids[target];
+                }
+                edge++;
+            }
+        }
+        firstEdge[keptNodes] = edge;
+    }
+
+    private CompactGraph(int keptNodes, int keptEdges, int[] firstEdge, char[] edgeLabels, int[] edgeTarget,
+                         BitSet terminal, int[] wordCount, char[] pool, BitSet chainEnd, int[] chainTarget) {
+        this.keptNodes = keptNodes;
+        this.keptEdges = keptEdges;
+        this.firstEdge = firstEdge;
+        this.edgeLabels = edgeLabels;
+        this.edgeTarget = edgeTarget;
+        this.terminal = terminal;
+        this.wordCount = wordCount;
+        this.pool = pool;
+        this.chainEnd = chainEnd;
+        this.chainTarget = chainTarget;
+    }
+
+    //the number of nodes and edges the graph really stores, leaving out the ones merged into the pool
+    int keptNodeCount() {
+        return keptNodes;
+    }
+
+    int keptEdgeCount() {
+        return keptEdges;
+    }
+
+    @Override
+    int root() {
+        return 0;
+    }
+
+    @Override
+    int nodeCount() {
+        return keptNodes + pool.length;
+    }
+
+    @Override
+    int edgeCount() {
+        return keptEdges + pool.length;
+    }
+
+    //a merged node never ends a word
+    @Override
+    boolean isTerminal(int node) {
+        return node < keptNodes && terminal.get(node);
+    }
+
+    //and leads to the same words as the kept node at the end of its chain
+    @Override
+    int wordCount(int node) {
+        return node < keptNodes ? wordCount[node] : wordCount[chainTarget[node - keptNodes]];
+    }
+
+    //firstEdge[keptNodes] is keptEdges, which is also where the pool's edges start
+    @Override
+    int firstEdge(int node) {
+        return node <= keptNodes ? firstEdge[node] : keptEdges + node - keptNodes;
+    }
+
+    @Override
+    char label(int edge) {
+        return edge < keptEdges ? edgeLabels[edge] : pool[edge - keptEdges];
+    }
+
+    @Override
+    int target(int edge) {
+        if (edge < keptEdges) return edgeTarget[edge];
+        int position = edge - keptEdges;
+        return chainEnd.get(position) ? chainTarget[position] : keptNodes + position + 1;
+    }
+
+    @Override
+    int child(int node, char edge) {
+
+        if (node >= keptNodes) {
+            int position = node - keptNodes;
+            if (pool[position] != edge) return -1;
+            return chainEnd.get(position) ? chainTarget[position] : node + 1;
+        }
+
+        int found = Arrays.binarySearch(edgeLabels, firstEdge[node], firstEdge[node + 1], edge);
+        return found < 0 ? -1 : edgeTarget[found];
+    }
+
+    @Override
+    boolean containsWord(CharSequence word) {
+
+        int node = 0;
+        int length = word.length();
+        int i = 0;
+
+        while (i < length) {
+
+            int found = Arrays.binarySearch(edgeLabels, firstEdge[node], firstEdge[node + 1], word.charAt(i++));
+            if (found < 0) return false;
+            node = edgeTarget[found];
+
+            //the rest of the chain has to match letter for letter, and a word can't end part way along it
+            if (node >= keptNodes) {
+                int position = node - keptNodes;
+                int last = chainEnd.nextSetBit(position);
+                if (length - i <= last - position) return false;
+                while (position <= last) {
+                    if (pool[position++] != word.charAt(i++)) return false;
+                }
+                node = chainTarget[last];
+            }
+        }
+
+        return terminal.get(node);
+    }
+
+    //the same as containsWord(CharSequence)
+    @Override
+    boolean containsWord(char[] buffer, int offset, int length) {
+
+        int node = 0;
+        int end = offset + length;
+        int i = offset;
+
+        while (i < end) {
+
+            int found = Arrays.binarySearch(edgeLabels, firstEdge[node], firstEdge[node + 1], buffer[i++]);
+            if (found < 0) return false;
+            node = edgeTarget[found];
+
+            if (node >= keptNodes) {
+                int position = node - keptNodes;
+                int last = chainEnd.nextSetBit(position);
+                if (end - i <= last - position) return false;
+                while (position <= last) {
+                    if (pool[position++] != buffer[i++]) return false;
+                }
+                node = chainTarget[last];
+            }
+        }
+
+        return terminal.get(node);
+    }
+
+    //the compacted binary format, big endian:
+    //  int    magic ("DAWC")
+    //  short  version
+    //  short  flags (none so far)
+    //  int    kept node count
+    //  int    kept edge count
+    //  int    pool length
+    //  int[]  first edge of each kept node, plus one entry holding the kept edge count
+    //  int[]  target of each kept edge, a kept node or kept node count + pool position
+    //  char[] label of each kept edge, sorted within each node
+    //  byte[] terminal flags, one bit per kept node
+    //  int[]  number of words at or below each kept node
+    //  char[] the pool
+    //  byte[] chain ends, one bit per pool position
+    //  int[]  the kept node each chain leads to, one per chain end
+    //  int    CRC32 of everything before it
+    void write(OutputStream output) throws IOException {
+
+        CRC32 crc = new CRC32();
+        BufferedOutputStream buffered = new BufferedOutputStream(output);
+        DataOutputStream out = new DataOutputStream(new CheckedOutputStream(buffered, crc));
+
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort(0);
+        out.writeInt(keptNodes);
+        out.writeInt(keptEdges);
+        out.writeInt(pool.length);
+
+        for (int node = 0; node <= keptNodes; node++) out.writeInt(firstEdge[node]);
+        for (int edge = 0; edge < keptEdges; edge++) out.writeInt(edgeTarget[edge]);
+        for (int edge = 0; edge < keptEdges; edge++) out.writeChar(edgeLabels[edge]);
+        out.write(Arrays.copyOf(terminal.toByteArray(), (keptNodes + 7) / 8));
+        for (int node = 0; node < keptNodes; node++) out.writeInt(wordCount[node]);
+        for (char letter : pool) out.writeChar(letter);
+        out.write(Arrays.copyOf(chainEnd.toByteArray(), (pool.length + 7) / 8));
+        for (int end = chainEnd.nextSetBit(0); end >= 0; end = chainEnd.nextSetBit(end + 1)) {
+            out.writeInt(chainTarget[end]);
+        }
+        out.flush();
+
+        //the checksum itself goes around the CheckedOutputStream
+        new DataOutputStream(buffered).writeInt((int) crc.getValue());
+        buffered.flush();
+    }
+
+    //reads a graph written by write, checking it well enough that a damaged file can't send lookups out of bounds.
+    //The magic number has already been read.
+    static CompactGraph read(InputStream input) throws IOException, InvalidDictionaryFormatException {
+
+        CRC32 crc = new CRC32();
+        crc.update(new byte[]{(byte) (MAGIC >>> 24), (byte) (MAGIC >>> 16), (byte) (MAGIC >>> 8), (byte) MAGIC});
+        DataInputStream in = new DataInputStream(new CheckedInputStream(input, crc));
+
+        try {
+            if (in.readShort() != VERSION) {
+                throw new InvalidDictionaryFormatException("unsupported compacted dictionary version");
+            }
+            in.readShort();
+            int keptNodes = in.readInt();
+            int keptEdges = in.readInt();
+            int poolLength = in.readInt();
+            //merged nodes and their edges are numbered after the kept ones, so both totals have to fit in an int
+            if (keptNodes <= 0 || keptEdges < 0 || poolLength < 0 || (long) keptNodes + poolLength >= MAX_COUNT
+                    || (long) keptEdges + poolLength >= MAX_COUNT) {
+                throw new InvalidDictionaryFormatException("compacted dictionary has a corrupt header");
+            }
+
+            int[] firstEdge = readInts(in, keptNodes + 1);
+            int[] edgeTarget = readInts(in, keptEdges);
+            char[] edgeLabels = readChars(in, keptEdges);
+            BitSet terminal = BitSet.valueOf(readBytes(in, (keptNodes + 7) / 8));
+            int[] wordCount = readInts(in, keptNodes);
+            char[] pool = readChars(in, poolLength);
+            BitSet chainEnd = BitSet.valueOf(readBytes(in, (poolLength + 7) / 8));
+
+            //every chain runs up to its end, so each position takes the target of the next end at or after it
+            int[] chainTarget = new int[poolLength];
+            int start = 0;
+            for (int end = chainEnd.nextSetBit(0); end >= 0; end = chainEnd.nextSetBit(end + 1)) {
+                if (end >= poolLength) throw new InvalidDictionaryFormatException("compacted dictionary is corrupt");
+                Arrays.fill(chainTarget, start, end + 1, in.readInt());
+                start = end + 1;
+            }
+
+            int checksum = (int) crc.getValue();
+            if (new DataInputStream(input).readInt() != checksum) {
+                throw new InvalidDictionaryFormatException("compacted dictionary checksum doesn't match");
+            }
+
+            boolean valid = start == poolLength && firstEdge[0] == 0 && firstEdge[keptNodes] == keptEdges;
+            for (int node = 0; valid && node < keptNodes; node++) valid = firstEdge[node] <= firstEdge[node + 1];
+            for (int edge = 0; valid && edge < keptEdges; edge++) {
+                valid = edgeTarget[edge] >= 0 && edgeTarget[edge] < keptNodes + poolLength;
+            }
+            for (int position = 0; valid && position < poolLength; position++) {
+                valid = chainTarget[position] >= 0 && chainTarget[position] < keptNodes;
+            }
+            if (!valid) throw new InvalidDictionaryFormatException("compacted dictionary is corrupt");
+
+            return new CompactGraph(keptNodes, keptEdges, firstEdge, edgeLabels, edgeTarget, terminal, wordCount, pool,
+                    chainEnd, chainTarget);
+
+        } catch (EOFException e) {
+            throw new InvalidDictionaryFormatException("compacted dictionary is truncated");
+        }
+    }
+
+    //the tables are read into arrays that grow as the values arrive, so a corrupt count runs into the end of the
+    //stream instead of allocating more memory than the stream could ever fill
+    private static int[] readInts(DataInputStream in, int count) throws IOException {
+        int[] values = new int[Math.min(count, READ_CHUNK)];
+        for (int i = 0; i < count; i++) {
+            if (i == values.length) values = Arrays.copyOf(values, (int) Math.min(count, 2L * i));
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    private static char[] readChars(DataInputStream in, int count) throws IOException {
+        char[] values = new char[Math.min(count, READ_CHUNK)];
+        for (int i = 0; i < count; i++) {
+            if (i == values.length) values = Arrays.copyOf(values, (int) Math.min(count, 2L * i));
+            values[i] = in.readChar();
+        }
+        return values;
+    }
+
+    private static byte[] readBytes(DataInputStream in, int count) throws IOException {
+        byte[] values = new byte[Math.min(count, READ_CHUNK)];
+        int read = 0;
+        while (read < count) {
+            if (read == values.length) values = Arrays.copyOf(values, (int) Math.min(count, 2L * read));
+            in.readFully(values, read, values.length - read);
+            read = values.length;
+        }
+        return values;
+    }
+
+}
@@ -0,0 +1,101 @@
+package DAWG;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+//a dictionary that many threads can read while another one keeps it up to date.
+//
+//Readers never lock. They read whichever version of the dictionary was published last, through an AtomicReference,
+//which guarantees that they see that version's graph completely built. Writers never change a published version.
+//add and remove copy the nodes along the word's path into a new graph that shares everything else with the old one,
+//and replace and update swap in a whole new dictionary, such as one rebuilt from a refreshed word list. Writers are
+//serialized with each other, but never hold up a reader.
+public class ConcurrentDAWG {
+
+    private final AtomicReference<DAWG> current;
+
+    private final Object writeLock = new Object();
+
+    //registry for add and remove, tied to the graph of the current version. It's reset whenever a whole new dictionary
+    //is published, since nodes from some other graph mustn't be mixed into this one.
+    private DAWGUpdater updater;
+
+    public ConcurrentDAWG(DAWG dictionary) {
+        current = new AtomicReference<>(dictionary);
+    }
+
+    //the current version. A snapshot never changes, so a reader that needs several queries to agree with each other
+    //should take one snapshot and ask it everything. Don't call add or remove on a snapshot; use the ones here.
+    public DAWG snapshot() {
+        return current.get();
+    }
+
+    public boolean containsWord(CharSequence word) {
+        return current.get().containsWord(word);
+    }
+
+    public int size() {
+        return current.get().size();
+    }
+
+    //publishes a new version in one step and returns the one it replaced. Readers that already have the old version
+    //keep using it. Closing an OFF_HEAP or mapped version makes their later queries fail, so only close it once
+    //they're done with it.
+    public DAWG replace(DAWG dictionary) {
+        synchronized (writeLock) {
+            updater = null;
+            return current.getAndSet(dictionary);
+        }
+    }
+
+    //builds a new version from the current one and publishes it. The function must not change the version it's
+    //given; other threads may be reading it.
+    public DAWG update(UnaryOperator<DAWG> rebuild) {
+        synchronized (writeLock) {
+            DAWG dictionary = rebuild.apply(current.get());
+            if (dictionary != current.get()) {
+                updater = null;
+                current.set(dictionary);
+            }
+            return dictionary;
+        }
+    }
+
+    //publishes a version that also has the word. Returns false, without publishing anything, if the word is already
+    //there. Frozen and off-heap dictionaries can't be changed.
+    public boolean add(CharSequence word) {
+        synchronized (writeLock) {
+            DAWG dictionary = current.get();
+            return publish(dictionary, updater(dictionary).add(dictionary.root(), word));
+        }
+    }
+
+    //publishes a version without the word. Returns false, without publishing anything, if the word isn't there.
+    public boolean remove(CharSequence word) {
+        synchronized (writeLock) {
+            DAWG dictionary = current.get();
+            return publish(dictionary, updater(dictionary).remove(dictionary.root(), word));
+        }
+    }
+
+    private boolean publish(DAWG dictionary, DAWGNode newRoot) {
+
+        if (newRoot == null) return false;
+
+        //the new nodes are all built before the set, which is what makes them visible to every reader that gets the
+        //new version. The new version keeps the old one's listener and lookup metrics.
+        current.set(dictionary.withRoot(newRoot));
+        return true;
+    }
+
+    private DAWGUpdater updater(DAWG dictionary) {
+
+        if (DAWG.isFrozen(dictionary.nodeType())) {
+            throw new UnsupportedOperationException("frozen dictionaries can't be changed");
+        }
+
+        if (updater == null) updater = new DAWGUpdater(dictionary.nodeType());
+        return updater;
+    }
+
+}
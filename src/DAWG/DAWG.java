@@ -1,80 +1,95 @@
 package DAWG;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class DAWG {
+//a dictionary can be read from any number of threads at once once it's been built and safely published, whatever its
+//node type. add and remove aren't safe while other threads are reading; use ConcurrentDAWG for a dictionary that
+//changes while it's being read.
+public class DAWG implements Iterable<String>, Closeable {
 
     public static final int ARRAY = 0;
     public static final int LIST = 1;
+    //read-only: the graph is built out of list nodes and then frozen into flat arrays. See freeze().
+    public static final int FROZEN = 2;
+    //read-only like FROZEN, but the flat tables are kept in direct memory outside the Java heap. See close().
+    public static final int OFF_HEAP = 3;
+    //nodes that store their edges sorted, in whatever layout suits how many they have. See DAWGAdaptiveNode.
+    public static final int ADAPTIVE = 4;
+    //read-only like FROZEN, with chains of single-edge nodes merged into edges of several letters. See compact().
+    public static final int COMPACTED = 5;
 
     private DAWGNode root;
     private int nodeType;
 
+    //set when the graph is frozen into flat tables, either on the heap or in a mapped binary file. root is then just a
+    //view of the graph's root node.
+    private StoredGraph graph;
+
+    //created by the first call to add or remove
+    private DAWGUpdater updater;
+
+    //told about building, loading and saving this dictionary
+    private DAWGListener listener = DAWGListener.NONE;
+
+    //null unless lookups are being measured, so that's the only check lookups pay for otherwise
+    private volatile LookupMetrics lookupMetrics;
+
     public DAWG(List<String> words) {
         this(words, ARRAY);
     }
 
-    //builds the dictionary from a list of words
     public DAWG(List<String> words, int nodeType) {
+        this(words, nodeType, DAWGListener.NONE);
+    }
 
-        this.nodeType = nodeType;
-
-        root = newNode();
+    //builds the dictionary from a list of words, reporting progress to the listener
+    public DAWG(List<String> words, int nodeType, DAWGListener listener) {
 
-        int counter = 1;
+        this.nodeType = nodeType;
+        this.listener = listener;
 
-        HashMap<DAWGNode, Character> lastEdges = new HashMap<>();
+        long startTime = System.nanoTime();
 
-        //words need to be added to the dictionary in alphabetical order.
-        Collections.sort(words);
+        //words need to be added to the dictionary in alphabetical order. The caller's list is left as it is.
+        List<String> sortedWords = new ArrayList<>(words);
+        Collections.sort(sortedWords);
 
-        ArrayList<DAWGNode> registry = new ArrayList<>();
+        long sortedTime = System.nanoTime();
+        listener.phaseFinished(DAWGListener.Phase.SORT, sortedTime - startTime);
 
-        for (String word : words) {
-            System.out.println("adding word " + counter++ + " of " + words.size() + " " + word);
-            DAWGNode lastState;
-            DAWGNode currentState = root;
-            String currentSuffix = word;
+        DAWGBuilder builder = new DAWGBuilder(nodeType).listener(listener);
 
-            DAWGNode nextNode;
-            while ((nextNode = currentState.getChild(currentSuffix.charAt(0))) != null) {
-                currentState = nextNode;
-                currentSuffix = currentSuffix.substring(1, currentSuffix.length());
-            }
+        for (String word : sortedWords) {
+            builder.add(word);
+        }
 
-            lastState = currentState;
-            if (lastState.hasChildren()) {
-                replaceOrRegister(lastState, registry, lastEdges);
-            }
+        root = builder.finish();
+        listener.phaseFinished(DAWGListener.Phase.BUILD, System.nanoTime() - sortedTime);
 
-            while (currentSuffix.length() > 0) {
-                DAWGNode nextState = newNode();
-                currentState.setChild(currentSuffix.charAt(0), nextState);
-                lastEdges.put(currentState, currentSuffix.charAt(0));
-                currentState = nextState;
-                currentSuffix = currentSuffix.substring(1, currentSuffix.length());
-            }
-            currentState.setTerminus(true);
-        }
+        if (isFrozen(nodeType)) freezeGraph();
+    }
 
-        replaceOrRegister(root, registry, lastEdges);
+    DAWG(DAWGNode root, int nodeType) {
+        this(root, nodeType, DAWGListener.NONE);
     }
 
-    private void replaceOrRegister(DAWGNode node, List<DAWGNode> registry, HashMap<DAWGNode, Character> lastEdges) {
+    //used by DAWGBuilder once the graph has been built and minimized
+    DAWG(DAWGNode root, int nodeType, DAWGListener listener) {
 
-        DAWGNode child = node.getChild(lastEdges.get(node));
-        if (child.hasChildren()) {
-            replaceOrRegister(child, registry, lastEdges);
-        }
-        for (DAWGNode path : registry) {
-            if (child.equals(path)) {
-                //need to replace the old one instead of just adding a new one.
-                node.setChild(lastEdges.get(node), path);
-                return;
-            }
-        }
-        registry.add(child);
+        this.nodeType = nodeType;
+        this.root = root;
+        this.listener = listener;
+
+        if (isFrozen(nodeType)) freezeGraph();
     }
 
     public DAWG(InputStream input) throws InvalidDictionaryFormatException {
@@ -82,34 +97,187 @@ public class DAWG {
     }
 
     public DAWG(InputStream input, int nodeType) throws InvalidDictionaryFormatException {
+        this(input, nodeType, DAWGListener.NONE);
+    }
+
+    //reads a dictionary written by either writeOut or writeBinary, reporting to the listener how long it took and how
+    //many nodes it created
+    public DAWG(InputStream input, int nodeType, DAWGListener listener) throws InvalidDictionaryFormatException {
 
         this.nodeType = nodeType;
+        this.listener = listener;
+
+        long startTime = System.nanoTime();
+        load(input);
+        listener.phaseFinished(DAWGListener.Phase.LOAD, System.nanoTime() - startTime);
+    }
+
+    private void load(InputStream input) throws InvalidDictionaryFormatException {
+
+        BufferedInputStream bufferedInput = new BufferedInputStream(input);
+
+        try {
+            bufferedInput.mark(4);
+            int format = new DataInputStream(bufferedInput).readInt();
+
+            if (format == CompactGraph.MAGIC) {
+                useStoredGraph(CompactGraph.read(bufferedInput));
+                return;
+            }
+
+            bufferedInput.reset();
+
+            if (format == BufferGraph.MAGIC) {
+                if (nodeType == OFF_HEAP) {
+                    useGraph(BufferGraph.readDirect(bufferedInput));
+                } else {
+                    useStoredGraph(new BufferGraph(ByteBuffer.wrap(bufferedInput.readAllBytes())));
+                }
+                return;
+            }
+        } catch (EOFException e) {
+            throw new InvalidDictionaryFormatException();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
 
-        Scanner scanner = new Scanner(new BufferedReader(new InputStreamReader(input)));
+        Scanner scanner = new Scanner(new BufferedReader(new InputStreamReader(bufferedInput, StandardCharsets.UTF_8)));
         scanner.useDelimiter("");
         HashMap<Integer, DAWGNode> registry = new HashMap<>();
 
-        if (scanner.next().charAt(0) != 'A') {
+        //'A' is the original format. 'C' is the same with each node's word count after its number of children.
+        char format = scanner.next().charAt(0);
+        if (format != 'A' && format != 'C') {
             throw new InvalidDictionaryFormatException();
         }
+        boolean withCounts = format == 'C';
 
         int rootId = buildNextInt(scanner);
 
-        //eat this token since we know it will be a '#' anyway
-        scanner.next();
+        boolean rootTerminus = scanner.next().charAt(0) == '*';
 
         int numChildren = buildNextInt(scanner);
 
-        root = newNode(numChildren, false);
+        root = newNode(numChildren, rootTerminus);
+        if (withCounts) root.setWordCount(readWordCount(scanner));
 
         registry.put(rootId, root);
 
-        buildHelper(root, registry, scanner);
+        buildHelper(root, registry, scanner, withCounts);
+
+        if (!withCounts) countWords(root);
+
+        if (isFrozen(nodeType)) freezeGraph();
+
+    }
+
+    //uses a graph that was read in, converted to whatever this dictionary's node type keeps
+    private void useStoredGraph(StoredGraph stored) {
+        if (nodeType == OFF_HEAP) {
+            useGraph(BufferGraph.allocateDirect(stored));
+        } else if (nodeType == FROZEN) {
+            useGraph(stored instanceof FlatGraph ? stored : new FlatGraph(stored));
+        } else if (nodeType == COMPACTED) {
+            useGraph(stored instanceof CompactGraph ? stored : new CompactGraph(stored));
+        } else {
+            root = buildFromBinary(stored);
+        }
+    }
+
+    private DAWG(StoredGraph graph, int nodeType) {
+        this.nodeType = nodeType;
+        useGraph(graph);
+    }
+
+    //returns a read-only copy of this dictionary that keeps the whole graph in a few flat arrays. Frozen graphs use
+    //much less memory than node objects do, and lookups binary search each node's sorted edges.
+    public DAWG freeze() {
+        return new DAWG(graph != null ? new FlatGraph(graph) : new FlatGraph(root), FROZEN);
+    }
+
+    //returns a read-only copy of this dictionary in which every chain of nodes that have a single edge, don't end a word
+    //and have a single parent is merged into the edge leading into it, with the chain's letters kept in a shared pool.
+    //The result has far fewer nodes than a frozen graph, and containsWord matches a whole chain at a time. writeBinary
+    //saves it in its compacted form. See CompactGraph.
+    public DAWG compact() {
+        return new DAWG(new CompactGraph(graph != null ? graph : new FlatGraph(root)), COMPACTED);
+    }
+
+    //a new version of this dictionary with another root, such as one DAWGUpdater made. It reports to the same listener
+    //and records into the same lookup metrics as this one.
+    DAWG withRoot(DAWGNode newRoot) {
+        DAWG version = new DAWG(newRoot, nodeType, listener);
+        version.lookupMetrics = lookupMetrics;
+        return version;
+    }
+
+    //replaces the nodes that were just built with their frozen equivalent
+    private void freezeGraph() {
+        long startTime = System.nanoTime();
+        FlatGraph flatGraph = new FlatGraph(root);
+        useGraph(nodeType == OFF_HEAP ? BufferGraph.allocateDirect(flatGraph)
+                : nodeType == COMPACTED ? new CompactGraph(flatGraph) : flatGraph);
+        listener.phaseFinished(DAWGListener.Phase.FREEZE, System.nanoTime() - startTime);
+    }
+
+    //reports writing and loading to the listener from now on
+    public void setListener(DAWGListener listener) {
+        this.listener = listener;
+    }
+
+    private void useGraph(StoredGraph graph) {
+        this.graph = graph;
+        this.root = new StoredGraphNode(graph, graph.root());
+    }
+
+    static boolean isFrozen(int nodeType) {
+        return nodeType == FROZEN || nodeType == OFF_HEAP || nodeType == COMPACTED;
+    }
+
+    //lets go of the buffer an OFF_HEAP or mapped dictionary reads from, so queries on it fail from then on and the
+    //memory can be reclaimed as soon as nothing else holds it. A query already running on another thread is left to
+    //finish safely. Closing any other dictionary does nothing.
+    @Override
+    public void close() {
+        if (graph != null) graph.release();
+    }
+
+    //maps a file written by writeBinary into memory and answers queries straight out of the mapping. The mapped graph
+    //is read-only and stays valid until the dictionary is closed, even after the file is closed.
+    public static DAWG map(Path file) throws IOException, InvalidDictionaryFormatException {
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new InvalidDictionaryFormatException("binary dictionary is too large to map");
+            }
+
+            return new DAWG(new BufferGraph(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())), OFF_HEAP);
+        }
+    }
+
+    //copies a graph that was read in into nodes of this dictionary's node type
+    private DAWGNode buildFromBinary(StoredGraph graph) {
 
+        DAWGNode[] nodes = new DAWGNode[graph.nodeCount()];
+
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = newNode(graph.numChildren(i), graph.isTerminal(i));
+            nodes[i].setWordCount(graph.wordCount(i));
+        }
+
+        for (int i = 0; i < nodes.length; i++) {
+            for (int edge = graph.firstEdge(i); edge < graph.firstEdge(i + 1); edge++) {
+                nodes[i].setChild(graph.label(edge), nodes[graph.target(edge)]);
+            }
+            nodes[i].compact();
+        }
+
+        return nodes[graph.root()];
     }
 
     //this is called by DAWG(InputStream). It recursively builds the dictionary from the input
-    private void buildHelper(DAWGNode currentNode, HashMap<Integer, DAWGNode> registry, Scanner scanner) {
+    private void buildHelper(DAWGNode currentNode, HashMap<Integer, DAWGNode> registry, Scanner scanner, boolean withCounts) {
 
         while (true) {
 
@@ -122,6 +290,7 @@ public class DAWG {
                 action = scanner.next().charAt(0);
             } else {
                 //if the action is '/', that means we're done adding children to this node. So we go up a level.
+                currentNode.compact();
                 return;
             }
 
@@ -131,9 +300,10 @@ public class DAWG {
                 boolean newNodeTerminus = scanner.next().charAt(0) == '*';
                 int newNodeNumChildren = buildNextInt(scanner);
                 DAWGNode newChild = newNode(newNodeNumChildren, newNodeTerminus);
+                if (withCounts) newChild.setWordCount(readWordCount(scanner));
                 registry.put(newNodeID, newChild);
                 currentNode.setChild(letter, newChild);
-                buildHelper(newChild, registry, scanner);
+                buildHelper(newChild, registry, scanner, withCounts);
             }
 
             //this edge points to a node that already exists
@@ -153,16 +323,85 @@ public class DAWG {
         return num;
     }
 
+    //the word count comes after a ',' following the number of children
+    private int readWordCount(Scanner scanner) {
+        scanner.next();
+        return buildNextInt(scanner);
+    }
+
+    //sets the word count of every node of a graph that was read without them, children before parents. Shared nodes
+    //are only counted once.
+    private static void countWords(DAWGNode root) {
+
+        Set<DAWGNode> counted = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<DAWGNode> stack = new ArrayDeque<>();
+        stack.push(root);
+
+        while (!stack.isEmpty()) {
+
+            DAWGNode node = stack.peek();
+            if (counted.contains(node)) {
+                stack.pop();
+                continue;
+            }
+
+            boolean childrenCounted = true;
+            for (DAWGEdge child : node) {
+                if (!counted.contains(child.node)) {
+                    stack.push(child.node);
+                    childrenCounted = false;
+                }
+            }
+
+            if (childrenCounted) {
+                DAWGBuilder.countWords(node);
+                counted.add(node);
+                stack.pop();
+            }
+        }
+    }
+
+    //writes the graph in the text format, as UTF-8. Node numbers are written right next to the labels, so a label that
+    //is a digit or '/' can't be read back, and neither can half of a surrogate pair. Every label is checked before
+    //anything is written, so a graph with any of those throws IllegalStateException and leaves the output untouched.
+    //writeBinary can store any label.
     public void writeOut(OutputStream output) throws FileNotFoundException, UnsupportedEncodingException {
-        PrintWriter writer = new PrintWriter(output);
-        //need to mark this as using the Array format
-        writer.print('A');
-        HashMap<DAWGNode, Integer> registry = new HashMap<>();
-        writeHelper(root, registry, writer);
+        long startTime = System.nanoTime();
+        checkWritableAsText();
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        //need to mark this as using the counted format
+        writer.print('C');
+        if (graph != null) {
+            //the nodes of a stored graph are views made on the fly, so they're tracked by id instead of identity
+            int[] written = new int[graph.nodeCount()];
+            Arrays.fill(written, -1);
+            writeHelper(graph.root(), written, 0, writer);
+        } else {
+            //written nodes are tracked by identity: each node object is written once, whatever it's equal to
+            IdentityHashMap<DAWGNode, Integer> registry = new IdentityHashMap<>();
+            writeHelper(root, registry, writer);
+        }
         writer.close();
+        listener.phaseFinished(DAWGListener.Phase.WRITE, System.nanoTime() - startTime);
     }
 
-    private void writeHelper(DAWGNode currentNode, HashMap<DAWGNode, Integer> registry, PrintWriter writer) {
+    //writes the graph in the binary format, which is much faster to read back in and can be used with map(). A COMPACTED
+    //dictionary is written in the compacted binary format instead, which map() can't use but any node type can read.
+    public void writeBinary(OutputStream output) throws IOException {
+        long startTime = System.nanoTime();
+        if (graph instanceof BufferGraph) {
+            ((BufferGraph) graph).writeTo(output);
+        } else if (graph instanceof CompactGraph) {
+            ((CompactGraph) graph).write(output);
+        } else if (graph != null) {
+            BufferGraph.write(graph, output);
+        } else {
+            BufferGraph.write(new FlatGraph(root), output);
+        }
+        listener.phaseFinished(DAWGListener.Phase.WRITE, System.nanoTime() - startTime);
+    }
+
+    private void writeHelper(DAWGNode currentNode, IdentityHashMap<DAWGNode, Integer> registry, PrintWriter writer) {
 
         int nodeID = registry.size();
 
@@ -172,6 +411,8 @@ public class DAWG {
         if (currentNode.isTerminal()) writer.print("*");
         else writer.print("#");
         writer.print(numChildren);
+        writer.print(",");
+        writer.print(currentNode.wordCount());
         registry.put(currentNode, nodeID);
 
         for (DAWGEdge child : currentNode) {
@@ -187,104 +428,558 @@ public class DAWG {
 
     }
 
+    //the same as writeHelper above, for a stored graph. written[node] is the number the node was written with, or -1 if
+    //it hasn't been written yet. Returns the next free number.
+    private int writeHelper(int node, int[] written, int nodeID, PrintWriter writer) {
+
+        writer.print(nodeID);
+        if (graph.isTerminal(node)) writer.print("*");
+        else writer.print("#");
+        writer.print(graph.numChildren(node));
+        writer.print(",");
+        writer.print(graph.wordCount(node));
+        written[node] = nodeID;
+
+        int nextID = nodeID + 1;
+        for (int edge = graph.firstEdge(node); edge < graph.firstEdge(node + 1); edge++) {
+            int child = graph.target(edge);
+            if (written[child] < 0) {
+                writer.print(graph.label(edge) + "\\");
+                nextID = writeHelper(child, written, nextID, writer);
+            } else {
+                writer.print(graph.label(edge) + ">" + written[child]);
+            }
+        }
+
+        writer.print("/");
+
+        return nextID;
+    }
+
+    //looks at every label of the graph once, visiting each node once
+    private void checkWritableAsText() {
+
+        if (graph != null) {
+            for (int edge = 0; edge < graph.edgeCount(); edge++) {
+                checkWritableAsText(graph.label(edge));
+            }
+            return;
+        }
+
+        Set<DAWGNode> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<DAWGNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        visited.add(root);
+
+        while (!stack.isEmpty()) {
+            for (DAWGEdge child : stack.pop()) {
+                checkWritableAsText(child.edge);
+                if (visited.add(child.node)) stack.push(child.node);
+            }
+        }
+    }
+
+    private static void checkWritableAsText(char label) {
+        if (!writableAsText(label)) {
+            throw new IllegalStateException(String.format(
+                    "the text format can't store the label U+%04X; use writeBinary", (int) label));
+        }
+    }
+
+    private static boolean writableAsText(char label) {
+        return label != '/' && !Character.isDigit(label) && !Character.isSurrogate(label);
+    }
+
     public boolean containsWord(String word) {
+        return containsWord((CharSequence) word);
+    }
+
+    //works on any CharSequence (a StringBuilder, a CharBuffer slice...) without copying it into a String first.
+    //Looking a word up never allocates anything.
+    public boolean containsWord(CharSequence word) {
+
+        LookupMetrics metrics = lookupMetrics;
+        if (metrics != null) return containsWord(word, metrics);
+
+        if (graph != null) return graph.containsWord(word);
 
         DAWGNode currentNode = root;
 
         for (int i = 0; i < word.length(); i++) {
 
-            DAWGNode nextNode;
+            if ((currentNode = currentNode.getChild(word.charAt(i))) == null) return false;
 
-            if ((nextNode = currentNode.getChild(word.charAt(i))) != null) currentNode = nextNode;
-            else return false;
+        }
+
+        return currentNode.isTerminal();
+    }
+
+    //looks up the word held in buffer[offset .. offset + length) without copying it
+    public boolean containsWord(char[] buffer, int offset, int length) {
+
+        Objects.checkFromIndexSize(offset, length, buffer.length);
+
+        LookupMetrics metrics = lookupMetrics;
+        if (metrics != null) return containsWord(CharBuffer.wrap(buffer, offset, length), metrics);
+
+        if (graph != null) return graph.containsWord(buffer, offset, length);
+
+        DAWGNode currentNode = root;
 
-            if (i == word.length() - 1) return currentNode.isTerminal();
+        for (int i = offset; i < offset + length; i++) {
+
+            if ((currentNode = currentNode.getChild(buffer[i])) == null) return false;
 
         }
 
-        return false;
+        return currentNode.isTerminal();
     }
 
-    //returns an object which contains a count of all the edges and nodes including and beneath this node.
-    public EdgeAndNodeCounter countEdgesAndNodes() {
-        return countEdgesAndNodes(root, new EdgeAndNodeCounter(), new ArrayList<>());
+    //adds a word to the dictionary, keeping the graph minimal. Only the nodes along the word's path are copied and
+    //re-minimized, so this costs about the length of the word times the number of edges per node instead of a
+    //rebuild. Iterators and streams that are already open keep seeing the dictionary as it was. Returns false if the
+    //word was already there. Frozen and off-heap dictionaries can't be changed.
+    public boolean add(CharSequence word) {
+
+        DAWGNode newRoot = updater().add(root, word);
+        if (newRoot == null) return false;
+
+        root = newRoot;
+        return true;
     }
 
-    private EdgeAndNodeCounter countEdgesAndNodes(DAWGNode currentNode, EdgeAndNodeCounter counter, ArrayList<DAWGNode> registry) {
+    //removes a word from the dictionary, keeping the graph minimal. See add. Returns false if the word wasn't there.
+    public boolean remove(CharSequence word) {
 
-        //count current node
-        counter.addNodes(1);
+        DAWGNode newRoot = updater().remove(root, word);
+        if (newRoot == null) return false;
 
-        //count all the edges leading out of current node
-        counter.addEdges(currentNode.numChildren());
+        root = newRoot;
+        return true;
+    }
 
-        //can't use a simple getChildren() method on the node since different DAWGNode implementations may use different
-        //data structures.
-        for (DAWGEdge child : currentNode) {
-            boolean foundChild = false;
+    DAWGNode root() {
+        return root;
+    }
+
+    int nodeType() {
+        return nodeType;
+    }
 
-            for (DAWGNode foundNode : registry) {
-                if (child.node == foundNode) {
-                    foundChild = true;
+    private DAWGUpdater updater() {
+
+        if (graph != null) throw new UnsupportedOperationException("frozen dictionaries can't be changed");
+
+        if (updater == null) updater = new DAWGUpdater(nodeType);
+        return updater;
+    }
+
+    //the same walk as containsWord, recording what it costs. Frozen graphs go through their node views so their binary
+    //searches are counted too.
+    private boolean containsWord(CharSequence word, LookupMetrics metrics) {
+
+        DAWGNode currentNode = root;
+        int depth = 0;
+        metrics.recordVisit(currentNode, word, 0);
+
+        while (depth < word.length()) {
+            DAWGNode nextNode = currentNode.getChild(word.charAt(depth), metrics);
+            if (nextNode == null) break;
+            currentNode = nextNode;
+            depth++;
+            metrics.recordVisit(currentNode, word, depth);
+        }
+
+        boolean found = depth == word.length() && currentNode.isTerminal();
+        metrics.recordLookup(depth, found);
+
+        return found;
+    }
+
+    //starts or stops measuring lookups: containsWord, containsAll and filter, the prefix queries, indexOf and wordAt, and
+    //the fuzzy, pattern and rack searches. Iterating over the words isn't measured. Pass null to stop; lookups then
+    //cost exactly what they did before. The metrics can be shared between dictionaries and read while lookups are running.
+    public void setLookupMetrics(LookupMetrics metrics) {
+        lookupMetrics = metrics;
+    }
+
+    public LookupMetrics getLookupMetrics() {
+        return lookupMetrics;
+    }
+
+    //the number of words in the dictionary
+    public int size() {
+        return root.wordCount();
+    }
+
+    //returns the position the word would have in a sorted list of every word in the dictionary, or -1 if it isn't in
+    //the dictionary. Together with wordAt this makes the graph a minimal perfect hash of its words: every word gets
+    //its own index from 0 to size() - 1. It only costs the length of the word times the number of edges per node,
+    //since the word counts stored on each node let it skip over whole subgraphs.
+    public int indexOf(CharSequence word) {
+
+        LookupMetrics metrics = lookupMetrics;
+        if (metrics != null) return indexOf(word, metrics);
+
+        if (graph != null) return graph.indexOf(word);
+
+        DAWGNode currentNode = root;
+        int index = 0;
+
+        for (int i = 0; i < word.length(); i++) {
+
+            //a word ending here is a prefix of this word, so it sorts first
+            if (currentNode.isTerminal()) index++;
+
+            char letter = word.charAt(i);
+            DAWGNode nextNode = null;
+
+            for (DAWGEdge child : currentNode) {
+                if (child.edge < letter) {
+                    index += child.node.wordCount();
+                } else {
+                    if (child.edge == letter) nextNode = child.node;
+                    break;
+                }
+            }
+
+            if ((currentNode = nextNode) == null) return -1;
+        }
+
+        return currentNode.isTerminal() ? index : -1;
+    }
+
+    //returns the word at the given position of the sorted list of every word in the dictionary. See indexOf.
+    public String wordAt(int index) {
+
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size());
+        }
+
+        LookupMetrics metrics = lookupMetrics;
+        if (metrics != null) return wordAt(index, metrics);
+
+        if (graph != null) return graph.wordAt(index);
+
+        StringBuilder word = new StringBuilder();
+        DAWGNode currentNode = root;
+
+        while (true) {
+
+            if (currentNode.isTerminal()) {
+                if (index == 0) return word.toString();
+                index--;
+            }
+
+            for (DAWGEdge child : currentNode) {
+                if (index < child.node.wordCount()) {
+                    word.append(child.edge);
+                    currentNode = child.node;
                     break;
                 }
+                index -= child.node.wordCount();
             }
+        }
+    }
+
+    //the same walk as indexOf, recording it as a lookup of the word. Each edge it looks at to add up the words before
+    //the one it follows counts as a comparison.
+    private int indexOf(CharSequence word, LookupMetrics metrics) {
+
+        DAWGNode currentNode = root;
+        int index = 0;
+        int depth = 0;
+        metrics.recordVisit(currentNode, word, 0);
+
+        while (depth < word.length()) {
+
+            if (currentNode.isTerminal()) index++;
+
+            char letter = word.charAt(depth);
+            DAWGNode nextNode = null;
+            int comparisons = 0;
 
-            if (!foundChild) {
-                registry.add(child.node);
-                countEdgesAndNodes(child.node, counter, registry);
+            for (DAWGEdge child : currentNode) {
+                comparisons++;
+                if (child.edge < letter) {
+                    index += child.node.wordCount();
+                } else {
+                    if (child.edge == letter) nextNode = child.node;
+                    break;
+                }
             }
 
+            metrics.recordComparisons(comparisons);
+            if (nextNode == null) break;
+            currentNode = nextNode;
+            depth++;
+            metrics.recordVisit(currentNode, word, depth);
         }
 
-        return counter;
+        boolean found = depth == word.length() && currentNode.isTerminal();
+        metrics.recordLookup(depth, found);
 
+        return found ? index : -1;
     }
 
-    public List<String> getAllWords() {
+    //the same walk as wordAt, recording it as a lookup of the word it finds, which is always a hit
+    private String wordAt(int index, LookupMetrics metrics) {
 
-        List<String> words = new ArrayList<>();
-        List<Character> word = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        DAWGNode currentNode = root;
+        metrics.recordVisit(currentNode, word, 0);
+
+        while (true) {
+
+            if (currentNode.isTerminal()) {
+                if (index == 0) break;
+                index--;
+            }
+
+            int comparisons = 0;
+            for (DAWGEdge child : currentNode) {
+                comparisons++;
+                if (index < child.node.wordCount()) {
+                    word.append(child.edge);
+                    currentNode = child.node;
+                    break;
+                }
+                index -= child.node.wordCount();
+            }
+
+            metrics.recordComparisons(comparisons);
+            metrics.recordVisit(currentNode, word, word.length());
+        }
+
+        metrics.recordLookup(word.length(), true);
+        return word.toString();
+    }
+
+    //checks a whole batch of words at once. Bit i of the result is set if words.get(i) is in the dictionary. Each word
+    //picks up from where the previous one left the common prefix instead of starting again at the root, so sorted
+    //batches, where neighbours share long prefixes, are much cheaper than calling containsWord on each word. Unsorted
+    //batches give the same answers, they just share less.
+    public BitSet containsAll(List<? extends CharSequence> words) {
+
+        BitSet found = new BitSet(words.size());
+
+        //measured lookups are counted one word at a time, without the shared prefixes
+        LookupMetrics metrics = lookupMetrics;
+        if (metrics != null) {
+            for (int w = 0; w < words.size(); w++) {
+                if (containsWord(words.get(w), metrics)) found.set(w);
+            }
+            return found;
+        }
+
+        if (graph != null) {
+            graph.containsAll(words, found);
+            return found;
+        }
+
+        //path[i] is the node reached after the first i letters of the previous word, for i up to pathLength
+        DAWGNode[] path = new DAWGNode[16];
+        path[0] = root;
+        int pathLength = 0;
+        CharSequence previous = "";
 
-        return allWordGetter(root, words, word);
+        for (int w = 0; w < words.size(); w++) {
+
+            CharSequence word = words.get(w);
+
+            int depth = 0;
+            int common = Math.min(pathLength, word.length());
+            while (depth < common && word.charAt(depth) == previous.charAt(depth)) {
+                depth++;
+            }
+
+            if (word.length() >= path.length) path = Arrays.copyOf(path, Math.max(word.length() + 1, 2 * path.length));
+
+            DAWGNode currentNode = path[depth];
+            while (depth < word.length() && (currentNode = currentNode.getChild(word.charAt(depth))) != null) {
+                path[++depth] = currentNode;
+            }
+
+            if (depth == word.length() && path[depth].isTerminal()) found.set(w);
+
+            pathLength = depth;
+            previous = word;
+        }
 
+        return found;
     }
 
-    private List<String> allWordGetter(DAWGNode currentNode, List<String> words, List<Character> word) {
+    //returns the words of the batch that are in the dictionary, in the order they were given. See containsAll.
+    public <T extends CharSequence> List<T> filter(List<T> words) {
 
-        if (currentNode.isTerminal()) {
-            words.add(charListToString(word));
+        BitSet found = containsAll(words);
+        List<T> filtered = new ArrayList<>(found.cardinality());
+
+        for (int i = found.nextSetBit(0); i >= 0; i = found.nextSetBit(i + 1)) {
+            filtered.add(words.get(i));
         }
 
-        for (DAWGEdge child : currentNode) {
-            word.add(child.edge);
-            allWordGetter(child.node, words, word);
+        return filtered;
+    }
+
+    //the number of nodes and edges in the graph. See statistics() for the rest of what it works out.
+    public EdgeAndNodeCounter countEdgesAndNodes() {
+        return statistics();
+    }
+
+    //counts the nodes and edges and works out the fan-out and depth of the nodes, how many are shared, and roughly how
+    //much memory each node type would need. Takes time in proportion to the size of the graph.
+    public DAWGStatistics statistics() {
+        return new DAWGStatistics(graph != null ? graph : new FlatGraph(root));
+    }
+
+    public List<String> getAllWords() {
+
+        List<String> words = new ArrayList<>();
+
+        for (String word : this) {
+            words.add(word);
         }
 
-        if (word.size() > 0)
-            word.remove(word.size() - 1);
+        return words;
+
+    }
+
+    //walks the words one at a time instead of collecting them all into a list first
+    @Override
+    public Iterator<String> iterator() {
+        return new WordIterator(root, "");
+    }
+
+    //a lazy stream of all the words. It splits at the root's edges, so it can be run in parallel.
+    public Stream<String> words() {
+        return StreamSupport.stream(new WordSpliterator(root), false);
+    }
+
+    //returns up to limit words that start with the prefix, in sorted order. Only the prefix and the words returned are
+    //walked, so this costs the same however big the dictionary is.
+    public List<String> wordsWithPrefix(CharSequence prefix, int limit) {
+
+        List<String> words = new ArrayList<>();
+
+        Iterator<String> matches = prefixIterator(prefix);
+        while (words.size() < limit && matches.hasNext()) {
+            words.add(matches.next());
+        }
 
         return words;
+    }
+
+    //the number of words that start with the prefix, read off the word count of the node it leads to
+    public int countWithPrefix(CharSequence prefix) {
+        DAWGNode node = prefixNode(prefix);
+        return node == null ? 0 : node.wordCount();
+    }
 
+    //a lazy, sorted stream of the words that start with the prefix
+    public Stream<String> wordsWithPrefix(CharSequence prefix) {
+        return sortedStream(prefixIterator(prefix));
     }
 
-    private String charListToString(List<Character> charList) {
+    //a lazy, sorted stream of the words w with from <= w < to. Pass null for to to leave the range open ended.
+    public Stream<String> wordsBetween(CharSequence from, CharSequence to) {
+        return sortedStream(new WordIterator(root, "", from, to));
+    }
 
-        StringBuilder word = new StringBuilder();
+    private Iterator<String> prefixIterator(CharSequence prefix) {
+        DAWGNode node = prefixNode(prefix);
+        return node == null ? Collections.emptyIterator() : new WordIterator(node, prefix);
+    }
+
+    //the node the prefix leads to, or null if no word starts with it. With metrics, the walk is recorded as a lookup
+    //of the prefix, which is a hit if the prefix leads anywhere.
+    private DAWGNode prefixNode(CharSequence prefix) {
 
-        for (Character letter : charList) {
-            word.append(letter);
+        LookupMetrics metrics = lookupMetrics;
+        DAWGNode currentNode = root;
+
+        if (metrics != null) {
+            int depth = 0;
+            metrics.recordVisit(currentNode, prefix, 0);
+            while (depth < prefix.length()) {
+                DAWGNode nextNode = currentNode.getChild(prefix.charAt(depth), metrics);
+                if (nextNode == null) break;
+                currentNode = nextNode;
+                depth++;
+                metrics.recordVisit(currentNode, prefix, depth);
+            }
+            metrics.recordLookup(depth, depth == prefix.length());
+            return depth == prefix.length() ? currentNode : null;
         }
 
-        return word.toString();
+        for (int i = 0; i < prefix.length(); i++) {
+            if ((currentNode = currentNode.getChild(prefix.charAt(i))) == null) return null;
+        }
+
+        return currentNode;
+    }
+
+    private static Stream<String> sortedStream(Iterator<String> words) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(words,
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.SORTED), false);
+    }
+
+    //returns up to limit words within maxEdits insertions, deletions or substitutions of the query, closest first. The
+    //search walks the graph once, sharing the work for common prefixes and skipping any subgraph that can't get close
+    //enough, rather than generating every possible edit and looking each one up.
+    public List<FuzzyMatch> fuzzyMatch(CharSequence query, int maxEdits, int limit) {
+        FuzzySearch search = new FuzzySearch(query, maxEdits, limit);
+        List<FuzzyMatch> matches = search.search(root);
+        recordSearch(search.nodesVisited(), matches.size());
+        return matches;
+    }
+
+    //returns up to limit words matching a wildcard pattern, in sorted order. '?' matches any one letter, '*' any run of
+    //letters, [abc] or [a-z] one letter from a set and [^abc] one letter not in it; a backslash escapes the next
+    //character. Subgraphs that can't match are skipped, and the search stops once it has limit words.
+    public List<String> wordsMatching(CharSequence pattern, int limit) {
+        PatternSearch search = new PatternSearch(pattern);
+        List<String> words = search.search(root, limit);
+        recordSearch(search.nodesVisited(), words.size());
+        return words;
+    }
 
+    //returns up to limit words, in sorted order, that can be spelled with some of the tiles on the rack. Repeated
+    //letters on the rack can be used as many times as they appear, and '?' is a blank standing for any letter.
+    public List<String> wordsFromRack(CharSequence rack, int limit) {
+        RackSearch search = new RackSearch(rack, false);
+        List<String> words = search.search(root, limit);
+        recordSearch(search.nodesVisited(), words.size());
+        return words;
+    }
+
+    //like wordsFromRack, but only words that use every tile
+    public List<String> anagrams(CharSequence rack, int limit) {
+        RackSearch search = new RackSearch(rack, true);
+        List<String> words = search.search(root, limit);
+        recordSearch(search.nodesVisited(), words.size());
+        return words;
+    }
+
+    private void recordSearch(int nodes, int results) {
+        LookupMetrics metrics = lookupMetrics;
+        if (metrics != null) metrics.recordSearch(nodes, results);
     }
 
     DAWGNode newNode() {
+        return emptyNode(nodeType);
+    }
+
+    static DAWGNode emptyNode(int nodeType) {
         switch (nodeType) {
             case ARRAY:
                 return new DAWGArrayNode();
+            case ADAPTIVE:
+                return new DAWGAdaptiveNode();
             case LIST:
+            case FROZEN:
+            case OFF_HEAP:
+            case COMPACTED:
                 return new DAWGListNode();
             default:
                 return new DAWGArrayNode();
@@ -292,10 +987,16 @@ public class DAWG {
     }
 
     DAWGNode newNode(int numChildren, boolean terminus) {
+        listener.nodeCreated();
         switch (nodeType) {
             case ARRAY:
                 return new DAWGArrayNode(numChildren, terminus);
+            case ADAPTIVE:
+                return new DAWGAdaptiveNode(numChildren, terminus);
             case LIST:
+            case FROZEN:
+            case OFF_HEAP:
+            case COMPACTED:
                 return new DAWGListNode(terminus);
             default:
                 return new DAWGArrayNode(numChildren, terminus);
@@ -0,0 +1,301 @@
+package DAWG;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+//a node that picks how to store its edges by how many it has. Most nodes of a word graph have one edge, a few have
+//many, and the root has nearly the whole alphabet:
+//  - no edge, or a single one kept in two fields, with no arrays at all
+//  - a few edges in small sorted arrays, scanned in order
+//  - more than LINEAR_SCAN_LIMIT edges in sorted arrays that are binary searched
+//  - at least DIRECT_TABLE_MIN edges, over a range of labels no more than twice that wide, also get a table indexed
+//    directly by label, so getChild is a single array access
+//The arrays grow as edges are added and are trimmed to size, and the table built, by compact() once the node's
+//children are final. Only the structural hash is cached, not the whole signature, to keep finished nodes small.
+//
+//Like the other nodes, it's changed in place while it's being built and mustn't be changed once it's shared. See
+//DAWGNode.
+public class DAWGAdaptiveNode implements DAWGNode {
+
+    static final int LINEAR_SCAN_LIMIT = 8;
+    static final int DIRECT_TABLE_MIN = 12;
+
+    private boolean terminus;
+    private int wordCount;
+
+    private boolean hashed;
+    private int hash;
+
+    //whether compact() has run since the last edge was added
+    private boolean compacted;
+
+    private int size;
+
+    //the only edge, when there's just one
+    private char singleEdge;
+    private DAWGNode singleChild;
+
+    //the edges in label order, when there are two or more. Only the first size entries are used.
+    private char[] edges;
+    private DAWGNode[] children;
+
+    //children indexed by their label minus the first label, or null if this node doesn't have a table
+    private DAWGNode[] table;
+
+    DAWGAdaptiveNode() {
+    }
+
+    DAWGAdaptiveNode(int numChildren, boolean terminus) {
+        this.terminus = terminus;
+        if (numChildren > 1) {
+            edges = new char[numChildren];
+            children = new DAWGNode[numChildren];
+        }
+    }
+
+    @Override
+    public DAWGNode getChild(char edge) {
+
+        if (table != null) {
+            int index = edge - edges[0];
+            return index >= 0 && index < table.length ? table[index] : null;
+        }
+
+        if (size <= 1) return size == 1 && singleEdge == edge ? singleChild : null;
+
+        if (size <= LINEAR_SCAN_LIMIT) {
+            for (int i = 0; i < size; i++) {
+                if (edges[i] == edge) return children[i];
+                if (edges[i] > edge) return null;
+            }
+            return null;
+        }
+
+        int index = Arrays.binarySearch(edges, 0, size, edge);
+        return index >= 0 ? children[index] : null;
+    }
+
+    //the same lookup as getChild, counting the labels it compares. A table lookup counts as one.
+    @Override
+    public DAWGNode getChild(char edge, LookupMetrics metrics) {
+
+        if (table != null || size <= 1) {
+            metrics.recordComparisons(size == 0 ? 0 : 1);
+            return getChild(edge);
+        }
+
+        if (size <= LINEAR_SCAN_LIMIT) {
+            for (int i = 0; i < size; i++) {
+                if (edges[i] >= edge) {
+                    metrics.recordComparisons(i + 1);
+                    return edges[i] == edge ? children[i] : null;
+                }
+            }
+            metrics.recordComparisons(size);
+            return null;
+        }
+
+        int low = 0;
+        int high = size - 1;
+        int comparisons = 0;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            comparisons++;
+            if (edges[mid] < edge) low = mid + 1;
+            else if (edges[mid] > edge) high = mid - 1;
+            else {
+                metrics.recordComparisons(comparisons);
+                return children[mid];
+            }
+        }
+
+        metrics.recordComparisons(comparisons);
+        return null;
+    }
+
+    @Override
+    public boolean hasChildren() {
+        return size > 0;
+    }
+
+    @Override
+    public boolean isTerminal() {
+        return terminus;
+    }
+
+    @Override
+    public void setTerminus(boolean terminus) {
+        this.terminus = terminus;
+        hashed = false;
+    }
+
+    @Override
+    public void setChild(char edge, DAWGNode child) {
+
+        hashed = false;
+
+        if (size == 0) {
+            singleEdge = edge;
+            singleChild = child;
+            size = 1;
+            compacted = false;
+            return;
+        }
+
+        if (size == 1) {
+            if (singleEdge == edge) {
+                singleChild = child;
+                return;
+            }
+            if (edges == null || edges.length < 2) {
+                edges = new char[2];
+                children = new DAWGNode[2];
+            }
+            edges[0] = singleEdge;
+            children[0] = singleChild;
+            singleChild = null;
+            compacted = false;
+        }
+
+        int index = size == 1 ? (edges[0] < edge ? -2 : edges[0] > edge ? -1 : 0)
+                : Arrays.binarySearch(edges, 0, size, edge);
+
+        if (index >= 0) {
+            children[index] = child;
+            if (table != null) table[edge - edges[0]] = child;
+            return;
+        }
+
+        //a new edge. The table is rebuilt by compact(), if the node still wants one.
+        table = null;
+        compacted = false;
+        index = -index - 1;
+
+        if (size == edges.length) {
+            edges = Arrays.copyOf(edges, 2 * size);
+            children = Arrays.copyOf(children, 2 * size);
+        }
+
+        System.arraycopy(edges, index, edges, index + 1, size - index);
+        System.arraycopy(children, index, children, index + 1, size - index);
+        edges[index] = edge;
+        children[index] = child;
+        size++;
+    }
+
+    //trims the arrays to the number of edges and builds the direct table if the node is wide and dense enough. Calling
+    //it again does nothing, and the table is only stored once it's filled, so getChild never sees it half built.
+    @Override
+    public void compact() {
+
+        if (compacted) return;
+
+        if (size <= 1) {
+            edges = null;
+            children = null;
+            compacted = true;
+            return;
+        }
+
+        if (edges.length != size) {
+            edges = Arrays.copyOf(edges, size);
+            children = Arrays.copyOf(children, size);
+        }
+
+        int range = edges[size - 1] - edges[0] + 1;
+        if (size >= DIRECT_TABLE_MIN && range <= 2 * size) {
+            DAWGNode[] table = new DAWGNode[range];
+            for (int i = 0; i < size; i++) {
+                table[edges[i] - edges[0]] = children[i];
+            }
+            this.table = table;
+        } else {
+            table = null;
+        }
+
+        compacted = true;
+    }
+
+    @Override
+    public int numChildren() {
+        return size;
+    }
+
+    @Override
+    public int wordCount() {
+        return wordCount;
+    }
+
+    @Override
+    public void setWordCount(int wordCount) {
+        this.wordCount = wordCount;
+    }
+
+    //a new signature every time, since only its hash is kept. The graph only asks once per node while it's building.
+    @Override
+    public NodeSignature signature() {
+        NodeSignature signature = new NodeSignature(this);
+        hash = signature.hashCode();
+        hashed = true;
+        return signature;
+    }
+
+    @Override
+    public int hashCode() {
+        if (!hashed) signature();
+        return hash;
+    }
+
+    @Override
+    public Iterator<DAWGEdge> iterator() {
+        return new Iterator<DAWGEdge>() {
+
+            private int current;
+
+            @Override
+            public boolean hasNext() {
+                return current < size;
+            }
+
+            @Override
+            public DAWGEdge next() {
+                if (current >= size) throw new NoSuchElementException();
+                DAWGEdge edge = size == 1 ? new DAWGEdge(singleEdge, singleChild)
+                        : new DAWGEdge(edges[current], children[current]);
+                current++;
+                return edge;
+            }
+        };
+    }
+
+    @Override
+    public boolean isHashed() {
+        return hashed;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+
+        if (this == o) return true;
+        if (o == null) return false;
+        if (!(o instanceof DAWGNode)) return false;
+
+        DAWGNode that = (DAWGNode) o;
+
+        //the cached hashes rule out almost every unequal pair without walking their subgraphs
+        if (this.hashCode() != that.hashCode()) return false;
+
+        if (this.terminus != that.isTerminal()) return false;
+
+        if (this.size != that.numChildren()) return false;
+
+        for (DAWGEdge child : this) {
+            if (!child.node.equals(that.getChild(child.edge))) return false;
+        }
+
+        return true;
+    }
+
+}
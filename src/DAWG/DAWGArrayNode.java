@@ -1,7 +1,9 @@
 package DAWG;
 
+import java.util.Arrays;
 import java.util.Iterator;
 
+//setChild shifts the edge arrays in place, so a node must not be changed once it's shared. See DAWGNode.
 public class DAWGArrayNode implements DAWGNode {
 
     //The outgoing edges of this node and the node nodes they lead to.
@@ -11,16 +13,22 @@ public class DAWGArrayNode implements DAWGNode {
     //is this node the end of a word?
     private boolean terminus;
 
+    //the number of words at or below this node, set once its children are final
+    private int wordCount;
+
+    //cached minimization key, computed the first time it is asked for after the node stops changing
+    private NodeSignature signature;
+
     DAWGArrayNode() {
         childEdges = new char[26];
-        childNodes = new DAWGArrayNode[26];
+        childNodes = new DAWGNode[26];
         terminus = false;
     }
 
     DAWGArrayNode(int numChildren, boolean terminus) {
         this.terminus = terminus;
         childEdges = new char[numChildren];
-        childNodes = new DAWGArrayNode[numChildren];
+        childNodes = new DAWGNode[numChildren];
     }
 
     @Override
@@ -36,11 +44,21 @@ public class DAWGArrayNode implements DAWGNode {
     @Override
     public void setTerminus(boolean terminus) {
         this.terminus = terminus;
+        signature = null;
     }
 
+    //edges are kept sorted, so a new edge is shifted into place. Words usually arrive in order, which makes this an append.
+    //A node starts out with room for 26 edges and doubles when it runs out, so any alphabet fits. An unused slot is
+    //marked by label 0, which is why that's the one label this node type can't store.
     @Override
     public void setChild(char edge, DAWGNode node) {
 
+        if (edge == 0) {
+            throw new IllegalArgumentException("ARRAY nodes can't store the label '\\0'; use another node type");
+        }
+
+        signature = null;
+
         for (int i = 0; i < childEdges.length; i++) {
             if (childEdges[i] == 0) {
                 childEdges[i] = edge;
@@ -49,8 +67,28 @@ public class DAWGArrayNode implements DAWGNode {
             } else if (childEdges[i] == edge) {
                 childNodes[i] = node;
                 return;
+            } else if (childEdges[i] > edge) {
+                int last = numChildren();
+                if (last == childEdges.length) grow();
+                System.arraycopy(childEdges, i, childEdges, i + 1, last - i);
+                System.arraycopy(childNodes, i, childNodes, i + 1, last - i);
+                childEdges[i] = edge;
+                childNodes[i] = node;
+                return;
             }
         }
+
+        //every slot is taken by a smaller label
+        int last = childEdges.length;
+        grow();
+        childEdges[last] = edge;
+        childNodes[last] = node;
+    }
+
+    private void grow() {
+        int capacity = Math.max(1, 2 * childEdges.length);
+        childEdges = Arrays.copyOf(childEdges, capacity);
+        childNodes = Arrays.copyOf(childNodes, capacity);
     }
 
     @Override
@@ -64,6 +102,25 @@ public class DAWGArrayNode implements DAWGNode {
 
     }
 
+    //the same scan as getChild, counting the labels it compares
+    @Override
+    public DAWGNode getChild(char edge, LookupMetrics metrics) {
+
+        for (int i = 0; i < childEdges.length; i++) {
+            if (childEdges[i] == edge) {
+                metrics.recordComparisons(i + 1);
+                return childNodes[i];
+            }
+            if (childEdges[i] == 0) {
+                metrics.recordComparisons(i + 1);
+                return null;
+            }
+        }
+
+        metrics.recordComparisons(childEdges.length);
+        return null;
+    }
+
     @Override
     public int numChildren() {
         int numChildren = 0;
@@ -74,14 +131,46 @@ public class DAWGArrayNode implements DAWGNode {
         return numChildren;
     }
 
+    @Override
+    public int wordCount() {
+        return wordCount;
+    }
+
+    @Override
+    public void setWordCount(int wordCount) {
+        this.wordCount = wordCount;
+    }
+
+    //structural, like equals, and cached along with the signature. It's only stable once the node's children are
+    //final, which is when the graph first asks for it.
+    @Override
+    public int hashCode() {
+        return signature().hashCode();
+    }
+
+    @Override
+    public NodeSignature signature() {
+        if (signature == null) signature = new NodeSignature(this);
+        return signature;
+    }
+
+    @Override
+    public boolean isHashed() {
+        return signature != null;
+    }
+
     @Override
     public boolean equals(Object o) {
 
+        if (this == o) return true;
         if (o == null) return false;
         if (!(o instanceof DAWGNode)) return false;
 
         DAWGNode that = (DAWGNode) o;
 
+        //the cached hashes rule out almost every unequal pair without walking their subgraphs
+        if (this.hashCode() != that.hashCode()) return false;
+
         if (this.terminus != that.isTerminal()) return false;
 
         if (this.numChildren() != that.numChildren()) return false;
@@ -0,0 +1,243 @@
+package DAWG;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+//repeatable timings for building, writing, loading, lookups and enumeration, for each node type on the word lists
+//and on generated lexicons.
+//
+//Each benchmark is run for a few untimed warm-up iterations so the JIT has settled, then for several measured ones.
+//An iteration keeps calling the operation until it has run for at least iterationMillis, so quick operations are
+//averaged over many calls. The report gives the mean time per operation with its spread over the measured
+//iterations, and how many bytes each operation allocated, so changes to node layouts can be compared on the same
+//footing. Results are folded into a sink that gets printed at the end, so the JIT can't drop the work as unused.
+//
+//Usage: DAWGBenchmark [iteration millis] [benchmark name filter]
+public class DAWGBenchmark {
+
+    private static final String[] WORD_LISTS = {"dictionaries/smallWordList.txt", "dictionaries/bigWordList.txt"};
+    private static final int[] SYNTHETIC_SIZES = {10000, 100000};
+    private static final int[] NODE_TYPES = {DAWG.ARRAY, DAWG.LIST, DAWG.ADAPTIVE};
+
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURED_ITERATIONS = 5;
+    private static final int DEFAULT_ITERATION_MILLIS = 500;
+
+    //how many words each lookup benchmark looks up per operation
+    private static final int LOOKUP_BATCH = 1000;
+
+    private final com.sun.management.ThreadMXBean allocationBean;
+    private final PrintStream out = System.out;
+    private final String filter;
+    private final int iterationMillis;
+
+    private long sink;
+
+    public static void main(String[] args) throws Exception {
+
+        int iterationMillis = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATION_MILLIS;
+
+        new DAWGBenchmark(args.length > 1 ? args[1] : "", iterationMillis).runAll();
+    }
+
+    public DAWGBenchmark(String filter) {
+        this(filter, DEFAULT_ITERATION_MILLIS);
+    }
+
+    public DAWGBenchmark(String filter, int iterationMillis) {
+
+        this.filter = filter;
+        this.iterationMillis = iterationMillis;
+
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        allocationBean = threadBean instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean) threadBean : null;
+    }
+
+    public void runAll() throws IOException, InvalidDictionaryFormatException {
+
+        out.printf("%-22s %-22s %-8s %14s %12s %14s %10s%n",
+                "benchmark", "lexicon", "type", "ns/op", "error", "bytes/op", "MB/s");
+
+        for (String fileName : WORD_LISTS) {
+            runLexicon(new File(fileName).getName(), readWordList(fileName));
+        }
+
+        for (int size : SYNTHETIC_SIZES) {
+            runLexicon("synthetic-" + size, syntheticWordList(size, 42));
+        }
+
+        out.println("(sink " + sink + ")");
+    }
+
+    private void runLexicon(String lexicon, List<String> words) throws IOException, InvalidDictionaryFormatException {
+
+        List<String> misses = missingWords(words, LOOKUP_BATCH, 7);
+        List<String> hits = sample(words, LOOKUP_BATCH, 11);
+        List<String> mixed = new ArrayList<>(hits.subList(0, LOOKUP_BATCH / 2));
+        mixed.addAll(misses.subList(0, LOOKUP_BATCH / 2));
+        Collections.shuffle(mixed, new Random(13));
+
+        for (int nodeType : NODE_TYPES) {
+
+            String type = nodeType == DAWG.ARRAY ? "ARRAY" : nodeType == DAWG.LIST ? "LIST" : "ADAPTIVE";
+            DAWG dictionary = new DAWG(words, nodeType);
+
+            ByteArrayOutputStream written = new ByteArrayOutputStream();
+            dictionary.writeOut(written);
+            byte[] text = written.toByteArray();
+
+            benchmark("build", lexicon, type, 1, () -> new DAWG(words, nodeType).size());
+
+            benchmark("writeOut", lexicon, type, 1, () -> {
+                ByteArrayOutputStream output = new ByteArrayOutputStream(text.length);
+                dictionary.writeOut(output);
+                return output.size();
+            });
+
+            benchmark("load", lexicon, type, 1,
+                    () -> new DAWG(new ByteArrayInputStream(text), nodeType).size());
+
+            benchmark("containsWord-hit", lexicon, type, LOOKUP_BATCH, () -> lookUp(dictionary, hits));
+            benchmark("containsWord-mixed", lexicon, type, LOOKUP_BATCH, () -> lookUp(dictionary, mixed));
+            benchmark("containsWord-miss", lexicon, type, LOOKUP_BATCH, () -> lookUp(dictionary, misses));
+
+            benchmark("getAllWords", lexicon, type, 1, () -> dictionary.getAllWords().size());
+
+            benchmark("countEdgesAndNodes", lexicon, type, 1, () -> dictionary.countEdgesAndNodes().getNodeCount());
+        }
+    }
+
+    private static int lookUp(DAWG dictionary, List<String> words) {
+        int found = 0;
+        for (String word : words) {
+            if (dictionary.containsWord(word)) found++;
+        }
+        return found;
+    }
+
+    //an operation being measured. It returns something derived from its result so the work can't be optimized away.
+    private interface Operation {
+        long run() throws Exception;
+    }
+
+    private void benchmark(String name, String lexicon, String type, int operationsPerCall, Operation operation) {
+
+        if (!name.contains(filter)) return;
+
+        try {
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) iterate(operation);
+
+            double[] nanosPerOperation = new double[MEASURED_ITERATIONS];
+            long totalBytes = 0;
+            long totalOperations = 0;
+            long totalNanos = 0;
+
+            for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+                long[] result = iterate(operation);
+                nanosPerOperation[i] = (double) result[0] / (result[1] * operationsPerCall);
+                totalNanos += result[0];
+                totalOperations += result[1] * operationsPerCall;
+                totalBytes += result[2];
+            }
+
+            double mean = Arrays.stream(nanosPerOperation).average().orElse(0);
+            double variance = Arrays.stream(nanosPerOperation).map(x -> (x - mean) * (x - mean)).sum()
+                    / Math.max(1, MEASURED_ITERATIONS - 1);
+
+            String bytesPerOperation = totalBytes < 0 ? "n/a" : String.format("%.1f", (double) totalBytes / totalOperations);
+            String allocationRate = totalBytes < 0 ? "n/a" : String.format("%.1f", totalBytes / 1e6 / (totalNanos / 1e9));
+
+            out.printf("%-22s %-22s %-8s %14.1f %12.1f %14s %10s%n",
+                    name, lexicon, type, mean, Math.sqrt(variance), bytesPerOperation, allocationRate);
+
+        } catch (Exception e) {
+            out.println(name + " " + lexicon + " " + type + " failed: " + e);
+        }
+    }
+
+    //runs the operation until at least iterationMillis have gone by. Returns the nanoseconds taken, the number of
+    //calls and the bytes allocated, or -1 bytes if this JVM can't tell.
+    private long[] iterate(Operation operation) throws Exception {
+
+        long threadId = Thread.currentThread().getId();
+        long deadline = iterationMillis * 1000000L;
+
+        long startBytes = allocationBean != null ? allocationBean.getThreadAllocatedBytes(threadId) : 0;
+        long startTime = System.nanoTime();
+        long elapsed;
+        long calls = 0;
+
+        do {
+            sink += operation.run();
+            calls++;
+            elapsed = System.nanoTime() - startTime;
+        } while (elapsed < deadline);
+
+        long allocated = allocationBean != null ? allocationBean.getThreadAllocatedBytes(threadId) - startBytes : -1;
+
+        return new long[]{elapsed, calls, allocated};
+    }
+
+    private static List<String> readWordList(String fileName) throws FileNotFoundException {
+
+        List<String> words = new ArrayList<>();
+
+        try (Scanner scanner = new Scanner(new File(fileName))) {
+            while (scanner.hasNext()) words.add(scanner.next());
+        }
+
+        return words;
+    }
+
+    //random lowercase words of 3 to 14 letters. Letters are drawn with English-like frequencies and the words share
+    //common endings, so the graph has suffixes to share like a real lexicon does.
+    static List<String> syntheticWordList(int numWords, long seed) {
+
+        String letters = "eeeeeeeeeeeettttttttaaaaaaaaooooooooiiiiiiinnnnnnnsssssshhhhhhrrrrrrddddllllcccuuummwwffggyyppbbvkjxqz";
+        String[] endings = {"", "", "s", "ed", "ing", "er", "ly", "ness", "tion", "able"};
+
+        Random random = new Random(seed);
+        Set<String> words = new HashSet<>();
+
+        while (words.size() < numWords) {
+            int length = 3 + random.nextInt(10);
+            StringBuilder word = new StringBuilder(length + 4);
+            for (int i = 0; i < length; i++) word.append(letters.charAt(random.nextInt(letters.length())));
+            word.append(endings[random.nextInt(endings.length)]);
+            words.add(word.toString());
+        }
+
+        return new ArrayList<>(words);
+    }
+
+    private static List<String> sample(List<String> words, int count, long seed) {
+
+        Random random = new Random(seed);
+        List<String> sample = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) sample.add(words.get(random.nextInt(words.size())));
+
+        return sample;
+    }
+
+    //words from the list with one letter changed, so that they look like real lookups but aren't in the list
+    private static List<String> missingWords(List<String> words, int count, long seed) {
+
+        Random random = new Random(seed);
+        Set<String> known = new HashSet<>(words);
+        List<String> missing = new ArrayList<>(count);
+
+        while (missing.size() < count) {
+            char[] word = words.get(random.nextInt(words.size())).toCharArray();
+            if (word.length == 0) continue;
+            word[random.nextInt(word.length)] = (char) ('a' + random.nextInt(26));
+            String candidate = new String(word);
+            if (!known.contains(candidate)) missing.add(candidate);
+        }
+
+        return missing;
+    }
+
+}
@@ -0,0 +1,107 @@
+package DAWG;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+//builds the part of a graph below a range of sorted words that all share their first depth letters, and returns the
+//node those letters lead to. Large ranges are split by their next letter and built in parallel, and the results are
+//joined under a new node. Like a builder's root, the returned node isn't registered, since its parent decides that.
+class DAWGBuildTask extends RecursiveTask<DAWGNode> {
+
+    private static final long serialVersionUID = 1L;
+
+    //ranges smaller than this aren't worth the overhead of splitting
+    static final int MIN_RANGE_SIZE = 1024;
+
+    private final List<? extends CharSequence> words;
+    private final int from;
+    private final int to;
+    private final int depth;
+    private final int rangeSize;
+    private final int nodeType;
+    private final NodeInterner registry;
+    private final DAWGListener listener;
+
+    DAWGBuildTask(List<? extends CharSequence> words, int from, int to, int depth, int rangeSize, int nodeType,
+                  NodeInterner registry, DAWGListener listener) {
+        this.words = words;
+        this.from = from;
+        this.to = to;
+        this.depth = depth;
+        this.rangeSize = rangeSize;
+        this.nodeType = nodeType;
+        this.registry = registry;
+        this.listener = listener;
+    }
+
+    @Override
+    protected DAWGNode compute() {
+
+        if (to - from <= rangeSize) {
+            DAWGBuilder builder = new DAWGBuilder(nodeType, registry).listener(listener);
+            for (int i = from; i < to; i++) {
+                builder.add(words.get(i), depth);
+            }
+            return builder.finish();
+        }
+
+        DAWGNode node = DAWG.emptyNode(nodeType);
+        listener.nodeCreated();
+
+        //a word that ends at this node sorts before everything else in the range
+        int start = from;
+        while (start < to && words.get(start).length() == depth) {
+            node.setTerminus(true);
+            start++;
+        }
+
+        //split the rest of the range by the letter that comes after the shared prefix
+        List<DAWGBuildTask> tasks = new ArrayList<>();
+        List<Character> letters = new ArrayList<>();
+        int groupStart = start;
+        while (groupStart < to) {
+
+            char letter = letterAt(groupStart);
+            int groupEnd = groupStart + 1;
+            while (groupEnd < to && letterAt(groupEnd) == letter) {
+                groupEnd++;
+            }
+
+            if (groupEnd < to && letterAt(groupEnd) < letter) {
+                throw outOfOrder(groupEnd);
+            }
+
+            letters.add(letter);
+            tasks.add(new DAWGBuildTask(words, groupStart, groupEnd, depth + 1, rangeSize, nodeType, registry,
+                    listener));
+            groupStart = groupEnd;
+        }
+
+        invokeAll(tasks);
+
+        //each child is complete now, so it can be minimized against everything the other tasks have registered
+        for (int i = 0; i < tasks.size(); i++) {
+            DAWGNode child = tasks.get(i).join();
+            DAWGNode interned = registry.intern(child);
+            listener.registryLookup(interned != child);
+            node.setChild(letters.get(i), interned);
+        }
+
+        DAWGBuilder.countWords(node);
+
+        return node;
+    }
+
+    private char letterAt(int index) {
+        CharSequence word = words.get(index);
+        if (word.length() <= depth) throw outOfOrder(index);
+        return word.charAt(depth);
+    }
+
+    private IllegalArgumentException outOfOrder(int index) {
+        return new IllegalArgumentException("words must be in sorted order, but \"" + words.get(index)
+                + "\" came after \"" + words.get(index - 1) + "\"");
+    }
+
+}
@@ -0,0 +1,228 @@
+package DAWG;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+//builds a DAWG one word at a time from words that are already in sorted order. The graph is minimized as it goes, so
+//the only part of it that can still change is the path of the last word added. Everything else is in the registry,
+//which means the words themselves never need to be held in memory.
+public class DAWGBuilder {
+
+    private final int nodeType;
+
+    //minimized nodes, one for each structure. Parallel builds share one concurrent registry between all their builders.
+    private final NodeInterner registry;
+
+    //path[i] is the node reached after the first i letters of the last word. path[0] is the root.
+    private DAWGNode[] path = new DAWGNode[16];
+    private char[] lastWord = new char[16];
+    private int lastLength;
+
+    private boolean built;
+
+    private DAWGListener listener = DAWGListener.NONE;
+    private boolean rootReported;
+
+    //the build is timed from the first word, so setting the builder up beforehand doesn't count
+    private boolean started;
+    private long startTime;
+
+    public DAWGBuilder() {
+        this(DAWG.ARRAY);
+    }
+
+    public DAWGBuilder(int nodeType) {
+        this(nodeType, new NodeInterner(false));
+    }
+
+    DAWGBuilder(int nodeType, NodeInterner registry) {
+        this.nodeType = nodeType;
+        this.registry = registry;
+        path[0] = DAWG.emptyNode(nodeType);
+    }
+
+    //reports the build's progress to the listener, which the built dictionary also keeps
+    public DAWGBuilder listener(DAWGListener listener) {
+        this.listener = listener;
+        //the root was created before there was a listener to tell. It's only counted once, even if the listener is
+        //replaced.
+        if (!rootReported) {
+            listener.nodeCreated();
+            rootReported = true;
+        }
+        return this;
+    }
+
+    //builds a DAWG from a sorted list using every core of the common pool. See buildParallel(List, int, ForkJoinPool).
+    public static DAWG buildParallel(List<? extends CharSequence> sortedWords, int nodeType) {
+        return buildParallel(sortedWords, nodeType, ForkJoinPool.commonPool());
+    }
+
+    //builds a DAWG from a sorted list by splitting it on its leading letters and building the parts on the pool. All
+    //the parts minimize against one shared registry, so suffixes are still shared between them and the graph comes
+    //out exactly the same as a sequential build.
+    public static DAWG buildParallel(List<? extends CharSequence> sortedWords, int nodeType, ForkJoinPool pool) {
+        return buildParallel(sortedWords, nodeType, pool, DAWGListener.NONE);
+    }
+
+    //the listener is called from every thread of the pool, so it has to be thread safe
+    public static DAWG buildParallel(List<? extends CharSequence> sortedWords, int nodeType, ForkJoinPool pool,
+                                     DAWGListener listener) {
+
+        long startTime = System.nanoTime();
+
+        NodeInterner registry = new NodeInterner(true);
+        int rangeSize = Math.max(DAWGBuildTask.MIN_RANGE_SIZE, sortedWords.size() / (4 * pool.getParallelism()));
+
+        DAWGNode root = pool.invoke(new DAWGBuildTask(sortedWords, 0, sortedWords.size(), 0, rangeSize, nodeType,
+                registry, listener));
+        root.compact();
+
+        listener.phaseFinished(DAWGListener.Phase.BUILD, System.nanoTime() - startTime);
+
+        return new DAWG(root, nodeType, listener);
+    }
+
+    //adds the next word. Words have to come in sorted order (the order String.compareTo gives); adding the same word
+    //twice in a row is harmless.
+    public DAWGBuilder add(CharSequence word) {
+        return add(word, 0);
+    }
+
+    //adds the word minus its first start letters. Parallel builds use this to build the graph below a shared prefix.
+    DAWGBuilder add(CharSequence word, int start) {
+
+        if (built) throw new IllegalStateException("build() has already been called");
+
+        if (!started) {
+            startTime = System.nanoTime();
+            started = true;
+        }
+
+        listener.wordAdded();
+
+        int length = word.length() - start;
+        int common = 0;
+        while (common < length && common < lastLength && word.charAt(start + common) == lastWord[common]) {
+            common++;
+        }
+
+        if (common < lastLength && (common == length || word.charAt(start + common) < lastWord[common])) {
+            throw new IllegalArgumentException("words must be added in sorted order, but \"" + word
+                    + "\" came after \"" + new String(lastWord, 0, lastLength) + "\"");
+        }
+
+        //nothing can be added below the common prefix any more, so the rest of the last word's path is final
+        minimize(common);
+
+        if (length >= path.length) {
+            path = Arrays.copyOf(path, Math.max(length + 1, path.length * 2));
+            lastWord = Arrays.copyOf(lastWord, path.length);
+        }
+
+        for (int i = common; i < length; i++) {
+            char letter = word.charAt(start + i);
+            DAWGNode nextState = DAWG.emptyNode(nodeType);
+            listener.nodeCreated();
+            path[i].setChild(letter, nextState);
+            path[i + 1] = nextState;
+            lastWord[i] = letter;
+        }
+
+        path[length].setTerminus(true);
+        lastLength = length;
+
+        return this;
+    }
+
+    public DAWGBuilder addAll(Iterator<? extends CharSequence> words) {
+        while (words.hasNext()) {
+            add(words.next());
+        }
+        return this;
+    }
+
+    public DAWGBuilder addAll(Stream<? extends CharSequence> words) {
+        words.sequential().forEachOrdered(this::add);
+        return this;
+    }
+
+    //adds every whitespace separated word the reader produces. Only one word is ever buffered at a time.
+    public DAWGBuilder addAll(Reader reader) throws IOException {
+
+        StringBuilder word = new StringBuilder();
+
+        int c;
+        while ((c = reader.read()) >= 0) {
+            if (Character.isWhitespace(c)) {
+                if (word.length() > 0) {
+                    add(word);
+                    word.setLength(0);
+                }
+            } else {
+                word.append((char) c);
+            }
+        }
+
+        if (word.length() > 0) add(word);
+
+        return this;
+    }
+
+    public DAWG build() {
+        DAWGNode root = finish();
+        listener.phaseFinished(DAWGListener.Phase.BUILD, started ? System.nanoTime() - startTime : 0);
+        return new DAWG(root, nodeType, listener);
+    }
+
+    //minimizes whatever is left of the last word and returns the root. The root itself is never registered.
+    DAWGNode finish() {
+
+        if (built) throw new IllegalStateException("build() has already been called");
+
+        minimize(0);
+        countWords(path[0]);
+        path[0].compact();
+        built = true;
+
+        return path[0];
+    }
+
+    //registers the nodes of the last word's path below the given depth, deepest first, replacing each one with an
+    //equivalent node if the registry already has one.
+    private void minimize(int depth) {
+
+        for (int i = lastLength; i > depth; i--) {
+
+            //the node's own children are all registered by now, so its signature and word count are final
+            DAWGNode child = path[i];
+            countWords(child);
+            DAWGNode interned = registry.intern(child);
+            listener.registryLookup(interned != child);
+
+            if (interned != child) {
+                path[i - 1].setChild(lastWord[i - 1], interned);
+            }
+        }
+
+        lastLength = depth;
+    }
+
+    //sets the node's word count from its children's, which have to be final already
+    static void countWords(DAWGNode node) {
+
+        int count = node.isTerminal() ? 1 : 0;
+
+        for (DAWGEdge child : node) {
+            count += child.node.wordCount();
+        }
+
+        node.setWordCount(count);
+    }
+
+}
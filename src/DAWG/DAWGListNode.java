@@ -4,12 +4,19 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
+//not thread safe while it's being built: setChild and setTerminus change the node in place. See DAWGNode.
 public class DAWGListNode implements DAWGNode {
 
     private List<DAWGEdge> children;
 
     private boolean terminus;
 
+    //the number of words at or below this node, set once its children are final
+    private int wordCount;
+
+    //cached minimization key, computed the first time it is asked for after the node stops changing
+    private NodeSignature signature;
+
     DAWGListNode() {
         this.children = new ArrayList<DAWGEdge>();
         this.terminus = false;
@@ -32,6 +39,21 @@ public class DAWGListNode implements DAWGNode {
         return null;
     }
 
+    @Override
+    public DAWGNode getChild(char edge, LookupMetrics metrics) {
+
+        for (int i = 0; i < children.size(); i++) {
+            DAWGEdge child = children.get(i);
+            if (child.edge == edge) {
+                metrics.recordComparisons(i + 1);
+                return child.node;
+            }
+        }
+
+        metrics.recordComparisons(children.size());
+        return null;
+    }
+
     @Override
     public boolean hasChildren() {
         return !children.isEmpty();
@@ -45,6 +67,7 @@ public class DAWGListNode implements DAWGNode {
     @Override
     public void setTerminus(boolean terminus) {
         this.terminus = terminus;
+        signature = null;
     }
 
     @Override
@@ -52,12 +75,18 @@ public class DAWGListNode implements DAWGNode {
         return children.size();
     }
 
+    //edges are kept sorted, so a new edge is inserted in place. Words usually arrive in order, which makes this an append.
     @Override
     public void setChild(char edge, DAWGNode child) {
-        for (DAWGEdge childEdge : children) {
+        signature = null;
+        for (int i = 0; i < children.size(); i++) {
+            DAWGEdge childEdge = children.get(i);
             if (childEdge.edge == edge) {
                 childEdge.node = child;
                 return;
+            } else if (childEdge.edge > edge) {
+                children.add(i, new DAWGEdge(edge, child));
+                return;
             }
         }
         children.add(new DAWGEdge(edge, child));
@@ -68,14 +97,46 @@ public class DAWGListNode implements DAWGNode {
         return children.iterator();
     }
 
+    @Override
+    public int wordCount() {
+        return wordCount;
+    }
+
+    @Override
+    public void setWordCount(int wordCount) {
+        this.wordCount = wordCount;
+    }
+
+    //structural, like equals, and cached along with the signature. It's only stable once the node's children are
+    //final, which is when the graph first asks for it.
+    @Override
+    public int hashCode() {
+        return signature().hashCode();
+    }
+
+    @Override
+    public NodeSignature signature() {
+        if (signature == null) signature = new NodeSignature(this);
+        return signature;
+    }
+
+    @Override
+    public boolean isHashed() {
+        return signature != null;
+    }
+
     @Override
     public boolean equals(Object o) {
 
+        if (this == o) return true;
         if (o == null) return false;
         if (!(o instanceof DAWGNode)) return false;
 
         DAWGNode that = (DAWGNode) o;
 
+        //the cached hashes rule out almost every unequal pair without walking their subgraphs
+        if (this.hashCode() != that.hashCode()) return false;
+
         if (this.terminus != that.isTerminal()) return false;
 
         if (this.numChildren() != that.numChildren()) return false;
@@ -0,0 +1,40 @@
+package DAWG;
+
+//receives progress and metrics while a dictionary is built, loaded or saved. Every method does nothing by default, so
+//a listener only needs to override what it's interested in, and NONE is used when no listener is given. A parallel
+//build calls its listener from several threads at once. See DAWGMetrics for a listener that just counts.
+public interface DAWGListener {
+
+    DAWGListener NONE = new DAWGListener() {
+    };
+
+    enum Phase {
+        //sorting the word list in DAWG(List)
+        SORT,
+        //adding the words and minimizing the graph
+        BUILD,
+        //turning a graph of nodes into flat tables, for DAWG.FROZEN, DAWG.OFF_HEAP and DAWG.COMPACTED
+        FREEZE,
+        //reading a dictionary in with DAWG(InputStream), including freezing it if that's needed
+        LOAD,
+        //writeOut or writeBinary
+        WRITE
+    }
+
+    //a word was added to a builder
+    default void wordAdded() {
+    }
+
+    //a node was created, either while building or while loading
+    default void nodeCreated() {
+    }
+
+    //a finished node was looked up in the minimization registry. A hit means the graph already had an equivalent node,
+    //so this one was merged into it and dropped; a miss means it was registered as a new node.
+    default void registryLookup(boolean hit) {
+    }
+
+    default void phaseFinished(Phase phase, long elapsedNanos) {
+    }
+
+}
@@ -0,0 +1,128 @@
+package DAWG;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+//a listener that keeps running totals of everything it's told, for as many builds and loads as it's passed to. The
+//counters are LongAdders, so parallel builds can update them without contending, and they can be read at any time.
+//It's a standard MBean, so it can be registered with the platform MBeanServer as it is. For other metrics libraries,
+//snapshot() gives every counter by name.
+public class DAWGMetrics implements DAWGListener, DAWGMetricsMBean {
+
+    private final LongAdder wordsAdded = new LongAdder();
+    private final LongAdder nodesCreated = new LongAdder();
+    private final LongAdder registryHits = new LongAdder();
+    private final LongAdder registryMisses = new LongAdder();
+    private final Map<Phase, LongAdder> phaseNanos = new EnumMap<>(Phase.class);
+
+    public DAWGMetrics() {
+        for (Phase phase : Phase.values()) {
+            phaseNanos.put(phase, new LongAdder());
+        }
+    }
+
+    @Override
+    public void wordAdded() {
+        wordsAdded.increment();
+    }
+
+    @Override
+    public void nodeCreated() {
+        nodesCreated.increment();
+    }
+
+    @Override
+    public void registryLookup(boolean hit) {
+        if (hit) registryHits.increment();
+        else registryMisses.increment();
+    }
+
+    @Override
+    public void phaseFinished(Phase phase, long elapsedNanos) {
+        phaseNanos.get(phase).add(elapsedNanos);
+    }
+
+    @Override
+    public long getWordsAdded() {
+        return wordsAdded.sum();
+    }
+
+    @Override
+    public long getNodesCreated() {
+        return nodesCreated.sum();
+    }
+
+    //each hit is a node that was merged into an equivalent one
+    @Override
+    public long getRegistryHits() {
+        return registryHits.sum();
+    }
+
+    @Override
+    public long getRegistryMisses() {
+        return registryMisses.sum();
+    }
+
+    public long getPhaseNanos(Phase phase) {
+        return phaseNanos.get(phase).sum();
+    }
+
+    @Override
+    public long getSortNanos() {
+        return getPhaseNanos(Phase.SORT);
+    }
+
+    @Override
+    public long getBuildNanos() {
+        return getPhaseNanos(Phase.BUILD);
+    }
+
+    @Override
+    public long getFreezeNanos() {
+        return getPhaseNanos(Phase.FREEZE);
+    }
+
+    @Override
+    public long getLoadNanos() {
+        return getPhaseNanos(Phase.LOAD);
+    }
+
+    @Override
+    public long getWriteNanos() {
+        return getPhaseNanos(Phase.WRITE);
+    }
+
+    //every counter by name, such as "wordsAdded" or "buildNanos"
+    public Map<String, Long> snapshot() {
+
+        Map<String, Long> counters = new LinkedHashMap<>();
+        counters.put("wordsAdded", getWordsAdded());
+        counters.put("nodesCreated", getNodesCreated());
+        counters.put("registryHits", getRegistryHits());
+        counters.put("registryMisses", getRegistryMisses());
+        for (Phase phase : Phase.values()) {
+            counters.put(phase.name().toLowerCase() + "Nanos", getPhaseNanos(phase));
+        }
+
+        return counters;
+    }
+
+    @Override
+    public void reset() {
+        wordsAdded.reset();
+        nodesCreated.reset();
+        registryHits.reset();
+        registryMisses.reset();
+        for (LongAdder nanos : phaseNanos.values()) {
+            nanos.reset();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+
+}
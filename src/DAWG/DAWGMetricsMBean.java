@@ -0,0 +1,26 @@
+package DAWG;
+
+//the counters DAWGMetrics exposes over JMX
+public interface DAWGMetricsMBean {
+
+    long getWordsAdded();
+
+    long getNodesCreated();
+
+    long getRegistryHits();
+
+    long getRegistryMisses();
+
+    long getSortNanos();
+
+    long getBuildNanos();
+
+    long getFreezeNanos();
+
+    long getLoadNanos();
+
+    long getWriteNanos();
+
+    void reset();
+
+}
@@ -6,10 +6,33 @@ import java.io.UnsupportedEncodingException;
 import java.util.Iterator;
 import java.util.List;
 
+//a node of the graph. Iterating over a node gives its outgoing edges in ascending order of their labels, which is what
+//lets the graph hand its words back in sorted order.
+//
+//Nodes aren't thread safe while they're being built, but once a node is part of a finished graph nothing changes it:
+//DAWGBuilder only changes nodes that haven't been minimized yet, and DAWG.add and remove copy the nodes they change.
+//So once a graph has been safely published (see ConcurrentDAWG), any number of threads can read it without locking.
 public interface DAWGNode extends Iterable<DAWGEdge> {
 
     DAWGNode getChild(char edge);
 
+    //getChild for a dictionary that's collecting lookup metrics. It records how many edge labels it had to compare.
+    default DAWGNode getChild(char edge, LookupMetrics metrics) {
+
+        int comparisons = 0;
+
+        for (DAWGEdge child : this) {
+            comparisons++;
+            if (child.edge == edge) {
+                metrics.recordComparisons(comparisons);
+                return child.node;
+            }
+        }
+
+        metrics.recordComparisons(comparisons);
+        return null;
+    }
+
     boolean hasChildren();
 
     boolean isTerminal();
@@ -20,6 +43,31 @@ public interface DAWGNode extends Iterable<DAWGEdge> {
 
     int numChildren();
 
+    //called once the node's children are final, so implementations can trim their storage to fit
+    default void compact() {
+    }
+
+    //the number of words that end at or below this node. The graph sets it once the node's children are final, which
+    //is what lets DAWG.indexOf and DAWG.wordAt skip over whole subgraphs.
+    int wordCount();
+
+    void setWordCount(int wordCount);
+
+    //equal nodes have the same words below them. Implementations compare their whole subgraphs, so this is for
+    //comparing separate graphs; code walking one graph should track nodes by identity instead.
     @Override
     boolean equals(Object o);
+
+    //consistent with equals: a structural hash, cached once the node's children are final. See NodeSignature.
+    @Override
+    int hashCode();
+
+    //whether hashCode is already cached, so asking for it won't have to look at the children
+    default boolean isHashed() {
+        return true;
+    }
+
+    //structural key used to minimize the graph. Only meaningful once the node's children are final; implementations
+    //cache it and drop the cached copy whenever the node is modified.
+    NodeSignature signature();
 }
@@ -0,0 +1,239 @@
+package DAWG;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+//the shape of a graph: how many nodes and edges it has, how its nodes fan out, how deep they are, how much of it is
+//shared, and about how much memory it would take with each node type. See DAWG.statistics().
+//
+//Everything is worked out over the numbered nodes of a StoredGraph (for a graph of node objects, DAWG numbers them
+//first, tracking visited nodes by identity), with loops instead of recursion, so it takes time in proportion to the
+//size of the graph however deep it is.
+public class DAWGStatistics extends EdgeAndNodeCounter {
+
+    //rough sizes on a 64-bit JVM with compressed references
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+
+    private final int terminalCount;
+    private final int alphabetSize;
+    private final int[] fanOutHistogram;
+    private final int[] depthHistogram;
+    private final int maxWordLength;
+    private final int sharedNodeCount;
+    private final int chainNodeCount;
+    private final long trieNodeCount;
+
+    DAWGStatistics(StoredGraph graph) {
+
+        int nodeCount = graph.nodeCount();
+        addNodes(nodeCount);
+        addEdges(graph.edgeCount());
+
+        int terminals = 0;
+        int maxFanOut = 0;
+        int[] parents = new int[nodeCount];
+        BitSet labels = new BitSet(Character.MAX_VALUE + 1);
+
+        for (int node = 0; node < nodeCount; node++) {
+            if (graph.isTerminal(node)) terminals++;
+            maxFanOut = Math.max(maxFanOut, graph.numChildren(node));
+            for (int edge = graph.firstEdge(node); edge < graph.firstEdge(node + 1); edge++) {
+                parents[graph.target(edge)]++;
+                labels.set(graph.label(edge));
+            }
+        }
+
+        int[] fanOuts = new int[maxFanOut + 1];
+        int shared = 0;
+        int chained = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            fanOuts[graph.numChildren(node)]++;
+            if (parents[node] > 1) shared++;
+            if (parents[node] == 1 && graph.numChildren(node) == 1 && !graph.isTerminal(node)) chained++;
+        }
+
+        //visit the nodes parents first, so each node's depths and path count are final before its children use them.
+        //A node is ready once all of its parents have been visited.
+        int[] shortest = new int[nodeCount];
+        int[] longest = new int[nodeCount];
+        long[] paths = new long[nodeCount];
+        int[] remainingParents = parents.clone();
+        Arrays.fill(shortest, Integer.MAX_VALUE);
+
+        int[] queue = new int[nodeCount];
+        int head = 0;
+        int tail = 0;
+        int root = graph.root();
+        queue[tail++] = root;
+        shortest[root] = 0;
+        paths[root] = 1;
+
+        int maxDepth = 0;
+        long trieNodes = 0;
+
+        while (head < tail) {
+
+            int node = queue[head++];
+            maxDepth = Math.max(maxDepth, longest[node]);
+            trieNodes += paths[node];
+
+            for (int edge = graph.firstEdge(node); edge < graph.firstEdge(node + 1); edge++) {
+                int child = graph.target(edge);
+                shortest[child] = Math.min(shortest[child], shortest[node] + 1);
+                longest[child] = Math.max(longest[child], longest[node] + 1);
+                paths[child] += paths[node];
+                if (--remainingParents[child] == 0) queue[tail++] = child;
+            }
+        }
+
+        //nodes the root can't reach never get a depth, so they're left out
+        int[] depths = new int[Arrays.stream(shortest).filter(depth -> depth != Integer.MAX_VALUE).max().orElse(-1) + 1];
+        for (int depth : shortest) {
+            if (depth != Integer.MAX_VALUE) depths[depth]++;
+        }
+
+        terminalCount = terminals;
+        alphabetSize = labels.cardinality();
+        fanOutHistogram = fanOuts;
+        depthHistogram = depths;
+        maxWordLength = maxDepth;
+        sharedNodeCount = shared;
+        chainNodeCount = chained;
+        trieNodeCount = trieNodes;
+    }
+
+    //the number of nodes that end a word
+    public int getTerminalCount() {
+        return terminalCount;
+    }
+
+    //the number of distinct edge labels. A supplementary character counts as the two halves of its surrogate pair.
+    public int getAlphabetSize() {
+        return alphabetSize;
+    }
+
+    //element i is the number of nodes with exactly i edges
+    public int[] getFanOutHistogram() {
+        return fanOutHistogram.clone();
+    }
+
+    public int getMaxFanOut() {
+        return fanOutHistogram.length - 1;
+    }
+
+    public double getAverageFanOut() {
+        return getNodeCount() == 0 ? 0 : (double) getEdgeCount() / getNodeCount();
+    }
+
+    //element i is the number of nodes whose shortest path from the root is i letters long
+    public int[] getDepthHistogram() {
+        return depthHistogram.clone();
+    }
+
+    //the length of the longest path from the root, which is the length of the longest word
+    public int getMaxWordLength() {
+        return maxWordLength;
+    }
+
+    //the number of nodes with more than one edge leading to them, which a trie would have had to store more than once
+    public int getSharedNodeCount() {
+        return sharedNodeCount;
+    }
+
+    public double getSharedNodeRatio() {
+        return getNodeCount() == 0 ? 0 : (double) sharedNodeCount / getNodeCount();
+    }
+
+    //the number of nodes that are only passed through: one parent, one edge and not the end of a word. DAWG.COMPACTED
+    //merges them into the edges leading to them, leaving getNodeCount() - getChainNodeCount() nodes.
+    public int getChainNodeCount() {
+        return chainNodeCount;
+    }
+
+    //the number of nodes a trie of the same words would have, one per distinct prefix
+    public long getTrieNodeCount() {
+        return trieNodeCount;
+    }
+
+    //about how many bytes the nodes and edges of this graph take with the given node type, leaving out the
+    //minimization signatures that built nodes keep cached. ARRAY nodes are counted with the 26 slots a build gives them,
+    //doubled as often as their edges need.
+    public long getEstimatedBytes(int nodeType) {
+
+        long nodes = getNodeCount();
+        long edges = getEdgeCount();
+
+        switch (nodeType) {
+            case DAWG.ARRAY:
+                //the node itself, then its edge labels and its children
+                long array = nodes * align(OBJECT_HEADER + 2 * REFERENCE + 1 + 4 + REFERENCE);
+                for (int fanOut = 0; fanOut < fanOutHistogram.length; fanOut++) {
+                    int slots = 26;
+                    while (slots < fanOut) slots *= 2;
+                    array += fanOutHistogram[fanOut]
+                            * (align(ARRAY_HEADER + 2 * slots) + align(ARRAY_HEADER + REFERENCE * slots));
+                }
+                return array;
+            case DAWG.LIST:
+                //the node, its ArrayList and the list's backing array (never smaller than 10), then a DAWGEdge per edge
+                long backingArrays = 0;
+                for (int fanOut = 0; fanOut < fanOutHistogram.length; fanOut++) {
+                    backingArrays += (long) fanOutHistogram[fanOut] * align(ARRAY_HEADER + REFERENCE * Math.max(10, fanOut));
+                }
+                return nodes * (align(OBJECT_HEADER + REFERENCE + 1 + 4 + REFERENCE) + align(OBJECT_HEADER + 4 + 4 + REFERENCE))
+                        + backingArrays + edges * align(OBJECT_HEADER + 2 + REFERENCE);
+            case DAWG.ADAPTIVE:
+                //the node with its inline edge, then for two or more edges the trimmed arrays and, for wide and dense
+                //nodes, the direct table (assumed to span every label from the first to the last)
+                long adaptive = nodes * align(OBJECT_HEADER + 1 + 4 + 1 + 4 + 4 + 2 + 4 * REFERENCE);
+                for (int fanOut = 2; fanOut < fanOutHistogram.length; fanOut++) {
+                    long arrays = align(ARRAY_HEADER + 2 * fanOut) + align(ARRAY_HEADER + REFERENCE * fanOut);
+                    if (fanOut >= DAWGAdaptiveNode.DIRECT_TABLE_MIN) arrays += align(ARRAY_HEADER + REFERENCE * fanOut);
+                    adaptive += fanOutHistogram[fanOut] * arrays;
+                }
+                return adaptive;
+            case DAWG.FROZEN:
+                //first edges, word counts, labels (a byte each when the alphabet fits in one), targets and terminal
+                //bits, then the alphabet
+                int labelBytes = alphabetSize <= 256 ? 1 : 2;
+                return 4 * (nodes + 1) + 4 * nodes + labelBytes * edges + 4 * edges + (nodes + 7) / 8
+                        + 2 * alphabetSize + 2 * 256;
+            case DAWG.COMPACTED:
+                //like OFF_HEAP for the nodes that are kept, then a label, a chain end bit and a target for each node
+                //that was merged into the pool
+                long kept = nodes - chainNodeCount;
+                long keptEdges = edges - chainNodeCount;
+                return 4 * (kept + 1) + 4 * kept + 2 * keptEdges + 4 * keptEdges + (kept + 7) / 8
+                        + 2 * chainNodeCount + (chainNodeCount + 7) / 8 + 4 * chainNodeCount;
+            case DAWG.OFF_HEAP:
+                //the binary format always stores a char per label
+                return 4 * (nodes + 1) + 4 * nodes + 2 * edges + 4 * edges + (nodes + 7) / 8;
+            default:
+                throw new IllegalArgumentException("unknown node type " + nodeType);
+        }
+    }
+
+    public double getEstimatedBytesPerNode(int nodeType) {
+        return getNodeCount() == 0 ? 0 : (double) getEstimatedBytes(nodeType) / getNodeCount();
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d nodes (%d terminal, %d shared, %.1f%%, %d in chains), "
+                        + "%d edges (%.2f per node, at most %d), %d distinct labels, longest word %d, "
+                        + "%d nodes as a trie; estimated bytes per node: "
+                        + "ARRAY %.0f, LIST %.0f, ADAPTIVE %.0f, FROZEN %.0f, COMPACTED %.0f",
+                getNodeCount(), terminalCount, sharedNodeCount, 100 * getSharedNodeRatio(), chainNodeCount,
+                getEdgeCount(), getAverageFanOut(), getMaxFanOut(), alphabetSize, maxWordLength, trieNodeCount,
+                getEstimatedBytesPerNode(DAWG.ARRAY), getEstimatedBytesPerNode(DAWG.LIST),
+                getEstimatedBytesPerNode(DAWG.ADAPTIVE), getEstimatedBytesPerNode(DAWG.FROZEN),
+                getEstimatedBytesPerNode(DAWG.COMPACTED));
+    }
+
+}
@@ -0,0 +1,145 @@
+package DAWG;
+
+//adds words to and removes words from a graph that has already been built, keeping it minimal.
+//
+//Nodes are never changed once they're in the graph, since other paths may share them. Instead an update copies the
+//nodes along the word's path, from the root down, changes the copies, and then minimizes them bottom up against the
+//same kind of registry DAWGBuilder uses: each copy is swapped for an equivalent node that's already registered, or
+//registered itself. The result is a new root, and the old root still describes the graph as it was before. An update
+//only costs the length of the word times the number of edges per node.
+class DAWGUpdater {
+
+    private final int nodeType;
+
+    //every node of the graph keyed by its structure, plus any nodes that updates have since cut out of it
+    private NodeInterner registry;
+    //how many nodes the graph had when the registry was last rebuilt
+    private int liveNodes;
+
+    DAWGUpdater(int nodeType) {
+        this.nodeType = nodeType;
+    }
+
+    //returns the root of a graph that also has the word, or null if the word is already in it
+    DAWGNode add(DAWGNode root, CharSequence word) {
+
+        DAWGNode[] path = path(root, word);
+        int prefixLength = prefixLength(path);
+
+        if (prefixLength == word.length() && path[prefixLength].isTerminal()) return null;
+
+        ensureRegistry(root);
+
+        //the part of the word that isn't in the graph yet becomes a new chain of nodes, built from the end
+        DAWGNode child = null;
+        for (int i = word.length(); i > prefixLength; i--) {
+            DAWGNode node = DAWG.emptyNode(nodeType);
+            if (child == null) node.setTerminus(true);
+            else node.setChild(word.charAt(i), child);
+            child = register(node);
+        }
+
+        for (int i = prefixLength; i >= 0; i--) {
+            DAWGNode copy = copy(path[i], (char) 0, false);
+            if (child == null) copy.setTerminus(true);
+            else copy.setChild(word.charAt(i), child);
+            child = register(copy);
+        }
+
+        compactIfNeeded();
+
+        return child;
+    }
+
+    //returns the root of a graph without the word, or null if the word isn't in it
+    DAWGNode remove(DAWGNode root, CharSequence word) {
+
+        DAWGNode[] path = path(root, word);
+        int length = word.length();
+
+        if (prefixLength(path) < length || !path[length].isTerminal()) return null;
+
+        ensureRegistry(root);
+
+        //null while the nodes being copied are left with nothing under them, since their parent should drop them
+        DAWGNode child = null;
+
+        for (int i = length; i >= 0; i--) {
+
+            DAWGNode copy;
+            if (i == length) {
+                copy = copy(path[i], (char) 0, false);
+                copy.setTerminus(false);
+            } else if (child == null) {
+                copy = copy(path[i], word.charAt(i), true);
+            } else {
+                copy = copy(path[i], (char) 0, false);
+                copy.setChild(word.charAt(i), child);
+            }
+
+            //the root stays even if the dictionary is now empty
+            child = i > 0 && !copy.isTerminal() && !copy.hasChildren() ? null : register(copy);
+        }
+
+        compactIfNeeded();
+
+        return child;
+    }
+
+    //the nodes along the word, starting with the root. It stops early, leaving the rest null, if the graph only has
+    //part of the word.
+    private static DAWGNode[] path(DAWGNode root, CharSequence word) {
+
+        DAWGNode[] path = new DAWGNode[word.length() + 1];
+        path[0] = root;
+
+        for (int i = 0; i < word.length() && path[i] != null; i++) {
+            path[i + 1] = path[i].getChild(word.charAt(i));
+        }
+
+        return path;
+    }
+
+    //how much of the word the path covers
+    private static int prefixLength(DAWGNode[] path) {
+        int length = 0;
+        while (length + 1 < path.length && path[length + 1] != null) length++;
+        return length;
+    }
+
+    //a new node with the same terminus and edges as the given one, less the skipped edge if there is one
+    private DAWGNode copy(DAWGNode node, char skippedEdge, boolean skip) {
+
+        DAWGNode copy = DAWG.emptyNode(nodeType);
+        copy.setTerminus(node.isTerminal());
+
+        for (DAWGEdge child : node) {
+            if (!skip || child.edge != skippedEdge) copy.setChild(child.edge, child.node);
+        }
+
+        return copy;
+    }
+
+    //returns the registered node equivalent to this one, registering it if there isn't one yet
+    private DAWGNode register(DAWGNode node) {
+        DAWGBuilder.countWords(node);
+        return registry.intern(node);
+    }
+
+    //the registry is only built when the first update needs it, by interning every node in the graph
+    private void ensureRegistry(DAWGNode root) {
+
+        if (registry != null) return;
+
+        registry = new NodeInterner(false);
+        liveNodes = registry.internAll(root);
+    }
+
+    //nodes that updates have cut out of the graph stay in the registry. That's harmless, since they're still correct
+    //and get reused if an equivalent node is needed again, but once they make up most of the registry it's dropped and
+    //rebuilt from the current graph on the next update.
+    private void compactIfNeeded() {
+        if (registry.size() > 2 * liveNodes + 1024) registry = null;
+    }
+
+}
@@ -1,11 +1,22 @@
 package DAWG;
 
 import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.CharBuffer;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 public class DictionaryTester implements Runnable {
 
     private static String OUTPUT_DIR = "graphs/";
+    private static String BINARY_EXTENSION = ".bin";
+
+    private static final int[] NODE_TYPES = {DAWG.ARRAY, DAWG.LIST, DAWG.FROZEN, DAWG.OFF_HEAP, DAWG.ADAPTIVE,
+            DAWG.COMPACTED};
 
     private int nodeType;
 
@@ -25,16 +36,25 @@ public class DictionaryTester implements Runnable {
 
     @Override
     public void run() {
-        synchronized (this) {
-            try {
-                dictionaryTest();
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+        try {
+            dictionaryTest();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    //runs the tests that don't depend on the node type, which only need to be run once whatever types are tested
+    public void runSharedTests() {
+        try {
+            if (wordList == null) wordList = buildWordList();
+            testWeightedDictionary();
+            testIncrementalUpdates();
+        } catch (Exception e) {
+            e.printStackTrace();
         }
     }
 
-    private void dictionaryTest() throws FileNotFoundException, UnsupportedEncodingException, InvalidDictionaryFormatException {
+    private void dictionaryTest() throws IOException, InvalidDictionaryFormatException, InterruptedException {
 
         wordList = buildWordList();
 
@@ -42,12 +62,37 @@ public class DictionaryTester implements Runnable {
         dictionary = buildFromList(wordList, nodeType);
         testWantedWords();
         testUnwantedWords();
-        countNodes(dictionary);
+        testLookupAllocation();
+        testBatchLookups();
+        testWordStreams();
+        testPrefixAndRangeQueries();
+        testLookupMetrics();
+        testAffixDictionary();
+        testParallelBuild();
+        testBuilder();
+        //read-only dictionaries can't be updated
+        if (!DAWG.isFrozen(nodeType)) testConcurrentReads();
+        testSearches();
+        testTextRoundTrip();
+        testUnicodeWords();
+        testCompactedDictionary();
+        EdgeAndNodeCounter built = countNodes(dictionary);
 
+        //reading a graph back has to give the same minimal graph, not just the same words
         writeToFile();
         dictionary = buildFromFile(outputFileName, nodeType);
         testWantedWords();
         testUnwantedWords();
+        sameCounts("graph read back from text", built, dictionary);
+        countNodes(dictionary);
+
+        writeBinaryToFile();
+        //a compacted dictionary is written in its own format, which can be read but not mapped
+        dictionary = nodeType == DAWG.COMPACTED ? buildFromFile(outputFileName + BINARY_EXTENSION, nodeType)
+                : mapFromFile(outputFileName + BINARY_EXTENSION);
+        testWantedWords();
+        testUnwantedWords();
+        sameCounts("graph read back from binary", built, dictionary);
         countNodes(dictionary);
     }
 
@@ -57,11 +102,13 @@ public class DictionaryTester implements Runnable {
 
         long startTime = System.nanoTime();
 
-        DAWG dictionary = new DAWG(words, nodeType);
+        DAWGMetrics metrics = new DAWGMetrics();
+        DAWG dictionary = new DAWG(words, nodeType, metrics);
 
         long endTime = System.nanoTime();
         double totalTime = (double) (endTime - startTime) / 1000000000;
         System.out.println("Built graph from word list in " + totalTime + " seconds");
+        System.out.println("Build metrics: " + metrics);
 
         return dictionary;
 
@@ -81,6 +128,36 @@ public class DictionaryTester implements Runnable {
 
     }
 
+    private void writeBinaryToFile() throws IOException {
+
+        System.out.println("Writing binary graph to " + OUTPUT_DIR + outputFileName + BINARY_EXTENSION);
+        long startTime = System.nanoTime();
+        File outputDirectory = new File(OUTPUT_DIR);
+        outputDirectory.mkdirs();
+        try (OutputStream output = new FileOutputStream(new File(OUTPUT_DIR + outputFileName + BINARY_EXTENSION))) {
+            dictionary.writeBinary(output);
+        }
+        long endTime = System.nanoTime();
+        double totalTime = (double) (endTime - startTime) / 1000000000;
+        System.out.println("Wrote binary graph to file in " + totalTime + " seconds");
+
+    }
+
+    private DAWG mapFromFile(String fileName) throws IOException, InvalidDictionaryFormatException {
+
+        System.out.println("Mapping graph from file " + OUTPUT_DIR + fileName);
+        long startTime = System.nanoTime();
+
+        DAWG dictionary = DAWG.map(new File(OUTPUT_DIR + fileName).toPath());
+
+        long endTime = System.nanoTime();
+        double totalTime = (double) (endTime - startTime) / 1000000000;
+        System.out.println("mapped graph from file in " + totalTime + " seconds");
+
+        return dictionary;
+
+    }
+
     private DAWG buildFromFile(String fileName, int nodeType) throws FileNotFoundException, InvalidDictionaryFormatException {
 
         System.out.println("Building graph from file " + OUTPUT_DIR + fileName);
@@ -98,7 +175,7 @@ public class DictionaryTester implements Runnable {
 
     }
 
-    private void countNodes(DAWG dictionary) {
+    private EdgeAndNodeCounter countNodes(DAWG dictionary) {
         System.out.println("Counting graph nodes...");
         long startTime = System.nanoTime();
         EdgeAndNodeCounter counter = dictionary.countEdgesAndNodes();
@@ -106,6 +183,8 @@ public class DictionaryTester implements Runnable {
         double totalTime = (double) (endTime - startTime) / 1000000000;
         System.out.println("Counted graph nodes in " + totalTime + " seconds");
         System.out.println("Graph contains " + counter.getNodeCount() + " nodes and " + counter.getEdgeCount() + " edges");
+        System.out.println(dictionary.statistics());
+        return counter;
     }
 
     private boolean testWantedWords() {
@@ -127,6 +206,840 @@ public class DictionaryTester implements Runnable {
 
     }
 
+    //has a writer thread add words to a ConcurrentDAWG one at a time, and then remove them again, while reader threads
+    //check every version they get. Each version has to have all of the original words and exactly the first k new
+    //words for some k; anything else means a reader saw a graph that wasn't completely built.
+    private boolean testConcurrentReads() throws InterruptedException {
+
+        System.out.println("Testing concurrent reads...");
+
+        List<String> newWords = new ArrayList<>();
+        Set<String> knownWords = new HashSet<>(wordList);
+        for (int i = 0; newWords.size() < 2000; i++) {
+            StringBuilder word = new StringBuilder("zzz");
+            for (int n = i; n > 0; n /= 26) word.append((char) ('a' + n % 26));
+            if (!knownWords.contains(word.toString())) newWords.add(word.toString());
+        }
+
+        ConcurrentDAWG concurrentDictionary = new ConcurrentDAWG(dictionary);
+        int baseSize = dictionary.size();
+        List<String> checkedWords = wordList.subList(0, Math.min(1000, wordList.size()));
+
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicInteger failures = new AtomicInteger();
+        AtomicLong versionsRead = new AtomicLong();
+
+        Runnable reader = () -> {
+            Random random = new Random();
+            while (writing.get()) {
+                DAWG snapshot = concurrentDictionary.snapshot();
+                int added = snapshot.size() - baseSize;
+                boolean consistent = added >= 0 && added <= newWords.size()
+                        && snapshot.containsWord(checkedWords.get(random.nextInt(checkedWords.size())))
+                        && (added == 0 || snapshot.containsWord(newWords.get(added - 1)))
+                        && (added == newWords.size() || !snapshot.containsWord(newWords.get(added)));
+                if (!consistent) failures.incrementAndGet();
+                versionsRead.incrementAndGet();
+            }
+        };
+
+        Thread[] readers = new Thread[4];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread(reader);
+            readers[i].start();
+        }
+
+        long startTime = System.nanoTime();
+
+        for (String word : newWords) concurrentDictionary.add(word);
+        for (int i = newWords.size() - 1; i >= 0; i--) concurrentDictionary.remove(newWords.get(i));
+
+        long endTime = System.nanoTime();
+
+        writing.set(false);
+        for (Thread thread : readers) thread.join();
+
+        double totalTime = (double) (endTime - startTime) / 1000000000;
+        System.out.println("Published " + 2 * newWords.size() + " versions in " + totalTime + " seconds while readers checked "
+                + versionsRead.get() + " versions");
+        System.out.println(failures.get() + " versions were inconsistent.");
+
+        return failures.get() == 0 && concurrentDictionary.size() == baseSize;
+
+    }
+
+    //adds and removes a few hundred words one at a time for each node type that can be changed, and after every change
+    //checks the graph against one built from scratch from the same words: the same words, and just as many nodes and
+    //edges, since the updates have to keep it minimal. Then every word is removed and they're all added back.
+    private boolean testIncrementalUpdates() {
+
+        System.out.println("Testing incremental updates...");
+
+        Random random = new Random(11);
+        List<String> pool = new ArrayList<>();
+        for (int i = 0; i < wordList.size(); i += wordList.size() / 600) pool.add(wordList.get(i));
+        //words with shared suffixes and prefixes of each other, so updates have to split and merge shared nodes
+        for (String word : new String[]{"", "a", "ab", "abs", "cabs", "tabs", "tab", "stab", "stabs"}) pool.add(word);
+
+        boolean result = true;
+        int changes = 0;
+
+        for (int type : new int[]{DAWG.ARRAY, DAWG.LIST, DAWG.ADAPTIVE}) {
+
+            TreeSet<String> expected = new TreeSet<>(pool.subList(0, pool.size() / 2));
+            DAWG updated = new DAWG(new ArrayList<>(expected), type);
+
+            for (int i = 0; i < 400 && result; i++) {
+                String word = pool.get(random.nextInt(pool.size()));
+                boolean adding = random.nextBoolean();
+                boolean changed = adding ? updated.add(word) : updated.remove(word);
+                if (changed != (adding ? expected.add(word) : expected.remove(word))) {
+                    result = false;
+                    System.out.println("type " + type + " reported the wrong result changing \"" + word + "\"");
+                }
+                result &= sameAsRebuilt("type " + type + " after changing \"" + word + "\"", updated, expected, type);
+                changes++;
+            }
+
+            for (String word : new ArrayList<>(expected)) updated.remove(word);
+            result &= sameAsRebuilt("type " + type + " with every word removed", updated, new TreeSet<>(), type);
+
+            for (String word : expected) updated.add(word);
+            result &= sameAsRebuilt("type " + type + " with the words added back", updated, expected, type);
+        }
+
+        System.out.println(result ? "The graph matched a rebuild after each of " + changes + " changes"
+                : "The graph stopped matching a rebuild");
+
+        return result;
+
+    }
+
+    //whether the dictionary has the words and is as small as a dictionary built from them
+    private static boolean sameAsRebuilt(String description, DAWG dictionary, SortedSet<String> words, int nodeType) {
+        List<String> list = new ArrayList<>(words);
+        return sameWords(description, dictionary, list)
+                && sameCounts(description, new DAWG(list, nodeType).countEdgesAndNodes(), dictionary);
+    }
+
+    //looks every word up through the char[] and CharSequence overloads and checks that no lookup allocated anything
+    private boolean testLookupAllocation() {
+
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+            System.out.println("Can't measure allocation on this JVM");
+            return true;
+        }
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        long threadId = Thread.currentThread().getId();
+
+        char[][] buffers = new char[wordList.size()][];
+        CharBuffer[] slices = new CharBuffer[wordList.size()];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = (" " + wordList.get(i) + " ").toCharArray();
+            slices[i] = CharBuffer.wrap(buffers[i], 1, buffers[i].length - 2);
+        }
+
+        //warm up first so the JIT has a chance to get rid of anything it can
+        int found = 0;
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < buffers.length; i++) {
+                if (dictionary.containsWord(buffers[i], 1, buffers[i].length - 2)) found++;
+                if (dictionary.containsWord(slices[i])) found++;
+            }
+        }
+
+        found = 0;
+        long startBytes = allocationBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < buffers.length; i++) {
+            if (dictionary.containsWord(buffers[i], 1, buffers[i].length - 2)) found++;
+            if (dictionary.containsWord(slices[i])) found++;
+        }
+        long allocated = allocationBean.getThreadAllocatedBytes(threadId) - startBytes;
+
+        double bytesPerLookup = (double) allocated / (2 * buffers.length);
+        System.out.println(found + " of " + 2 * buffers.length + " lookups found their word, allocating "
+                + bytesPerLookup + " bytes per lookup");
+
+        return bytesPerLookup == 0;
+
+    }
+
+    //checks fuzzyMatch, wordsMatching, wordsFromRack and anagrams against a scan of every word in the list
+    private boolean testSearches() {
+
+        System.out.println("Testing searches against a scan of the word list...");
+
+        boolean result = true;
+        Random random = new Random(42);
+
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            StringBuilder query = new StringBuilder(wordList.get(random.nextInt(wordList.size())));
+            if (i % 2 == 1 && query.length() > 1) query.setCharAt(random.nextInt(query.length()), 'q');
+            queries.add(query.toString());
+        }
+
+        for (String query : queries) {
+            for (int maxEdits : new int[]{0, 1, 2, Integer.MAX_VALUE}) {
+
+                List<String> expected = new ArrayList<>();
+                for (int distance = 0; distance <= Math.min(maxEdits, 64) && expected.size() < 20; distance++) {
+                    for (String word : wordList) {
+                        if (editDistance(query, word) == distance && expected.size() < 20) {
+                            expected.add(word + " (" + distance + ")");
+                        }
+                    }
+                }
+
+                List<String> found = new ArrayList<>();
+                for (FuzzyMatch match : dictionary.fuzzyMatch(query, maxEdits, 20)) found.add(match.toString());
+
+                if (!found.equals(expected)) {
+                    result = false;
+                    System.out.println("fuzzyMatch(" + query + ", " + maxEdits + ") gave " + found + ", expected " + expected);
+                }
+            }
+        }
+
+        String[][] patterns = {{"c?t", "c.t"}, {"*ing", ".*ing"}, {"[bc]a*e", "[bc]a.*e"}, {"[^a-m]??", "[^a-m].."},
+                {"*x*z*", ".*x.*z.*"}, {"", ""}};
+        for (String[] pattern : patterns) {
+
+            List<String> expected = new ArrayList<>();
+            for (String word : wordList) {
+                if (word.matches(pattern[1])) expected.add(word);
+            }
+
+            List<String> found = dictionary.wordsMatching(pattern[0], Integer.MAX_VALUE);
+            if (!found.equals(expected)) {
+                result = false;
+                System.out.println("wordsMatching(" + pattern[0] + ") gave " + found.size() + " words, expected "
+                        + expected.size());
+            }
+        }
+
+        for (String rack : new String[]{"aeinrst", "retains", "qu?z", "??", "ab?cde"}) {
+            for (boolean useAllTiles : new boolean[]{false, true}) {
+
+                List<String> expected = new ArrayList<>();
+                for (String word : wordList) {
+                    if (spelledFrom(word, rack, useAllTiles)) expected.add(word);
+                }
+
+                List<String> found = useAllTiles ? dictionary.anagrams(rack, Integer.MAX_VALUE)
+                        : dictionary.wordsFromRack(rack, Integer.MAX_VALUE);
+                if (!found.equals(expected)) {
+                    result = false;
+                    System.out.println((useAllTiles ? "anagrams(" : "wordsFromRack(") + rack + ") gave " + found
+                            + ", expected " + expected);
+                }
+            }
+        }
+
+        System.out.println(result ? "All searches matched the scan" : "Some searches didn't match the scan");
+
+        return result;
+
+    }
+
+    //checks containsAll and filter on a batch of words, prefixes of words and words with a letter added, both sorted,
+    //where each word continues from the last one's path, and shuffled, against containsWord on each word
+    private boolean testBatchLookups() {
+
+        System.out.println("Testing batch lookups...");
+
+        Random random = new Random(5);
+        List<String> batch = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            String word = wordList.get(random.nextInt(wordList.size()));
+            switch (i % 3) {
+                case 0: batch.add(word); break;
+                case 1: batch.add(word.substring(0, random.nextInt(word.length() + 1))); break;
+                default: batch.add(word + (char) ('a' + random.nextInt(26)));
+            }
+        }
+
+        boolean result = true;
+        List<String> sorted = new ArrayList<>(batch);
+        Collections.sort(sorted);
+
+        for (List<String> words : Arrays.asList(sorted, batch)) {
+
+            BitSet expected = new BitSet(words.size());
+            List<String> expectedWords = new ArrayList<>();
+            for (int i = 0; i < words.size(); i++) {
+                if (dictionary.containsWord(words.get(i))) {
+                    expected.set(i);
+                    expectedWords.add(words.get(i));
+                }
+            }
+
+            if (!dictionary.containsAll(words).equals(expected) || !dictionary.filter(words).equals(expectedWords)) {
+                result = false;
+                System.out.println("containsAll or filter of the " + (words == sorted ? "sorted" : "unsorted")
+                        + " batch didn't match containsWord");
+            }
+        }
+
+        System.out.println(result ? "Batch lookups matched containsWord" : "Batch lookups didn't match containsWord");
+
+        return result;
+
+    }
+
+    //enumerates the words through words(), sequentially and in parallel. The parallel stream splits the graph between
+    //threads, and still has to give the words back in sorted order.
+    private boolean testWordStreams() {
+
+        System.out.println("Testing word streams...");
+
+        long startTime = System.nanoTime();
+        List<String> parallel = dictionary.words().parallel().collect(Collectors.toList());
+        double totalTime = (double) (System.nanoTime() - startTime) / 1000000000;
+
+        boolean result = dictionary.words().collect(Collectors.toList()).equals(wordList) && parallel.equals(wordList)
+                && dictionary.words().parallel().count() == wordList.size()
+                && dictionary.words().parallel().filter(word -> word.endsWith("ing")).collect(Collectors.toList())
+                        .equals(wordList.stream().filter(word -> word.endsWith("ing")).collect(Collectors.toList()));
+
+        //splitting by hand, so the split is checked even where the pool has a single thread
+        Spliterator<String> rest = dictionary.words().spliterator();
+        Spliterator<String> first = rest.trySplit();
+        List<String> split = new ArrayList<>();
+        if (first != null) first.forEachRemaining(split::add);
+        rest.forEachRemaining(split::add);
+        if (first == null || !split.equals(wordList)) {
+            result = false;
+            System.out.println("the word spliterator " + (first == null ? "didn't split" : "lost the order when it split"));
+        }
+
+        System.out.println(result ? "Streamed the words in parallel in " + totalTime + " seconds"
+                : "The word streams didn't match the word list");
+
+        return result;
+
+    }
+
+    //checks wordsWithPrefix, with and without a limit, countWithPrefix and wordsBetween against a scan of the word list,
+    //including prefixes and bounds that aren't words themselves and open and empty ranges
+    private boolean testPrefixAndRangeQueries() {
+
+        System.out.println("Testing prefix and range queries...");
+
+        boolean result = true;
+
+        for (String prefix : new String[]{"", "a", "qu", "inter", "zz", "xyzzy", wordList.get(wordList.size() / 2)}) {
+
+            List<String> expected = new ArrayList<>();
+            for (String word : wordList) {
+                if (word.startsWith(prefix)) expected.add(word);
+            }
+
+            if (!dictionary.wordsWithPrefix(prefix).collect(Collectors.toList()).equals(expected)
+                    || !dictionary.wordsWithPrefix(prefix, 5).equals(expected.subList(0, Math.min(5, expected.size())))
+                    || dictionary.countWithPrefix(prefix) != expected.size()) {
+                result = false;
+                System.out.println("wordsWithPrefix(" + prefix + ") didn't match the word list");
+            }
+        }
+
+        String[][] ranges = {{"b", "c"}, {"inter", "internal"}, {"cat", "catz"}, {"", null}, {"zz", null},
+                {"m", "m"}, {"q", "a"}, {"", ""}};
+        for (String[] range : ranges) {
+
+            List<String> expected = new ArrayList<>();
+            for (String word : wordList) {
+                if (word.compareTo(range[0]) >= 0 && (range[1] == null || word.compareTo(range[1]) < 0)) {
+                    expected.add(word);
+                }
+            }
+
+            List<String> found = dictionary.wordsBetween(range[0], range[1]).collect(Collectors.toList());
+            if (!found.equals(expected)) {
+                result = false;
+                System.out.println("wordsBetween(" + range[0] + ", " + range[1] + ") gave " + found.size()
+                        + " words, expected " + expected.size());
+            }
+        }
+
+        System.out.println(result ? "Prefix and range queries matched the scan"
+                : "Some prefix or range queries didn't match the scan");
+
+        return result;
+
+    }
+
+    //builds the word list again with DAWGBuilder from a Reader, with the words separated by mixed whitespace, and checks
+    //it gives the same graph. Words out of order have to be rejected, while a word repeated straight away is harmless.
+    private boolean testBuilder() throws IOException {
+
+        System.out.println("Testing the builder...");
+
+        StringBuilder text = new StringBuilder("  ");
+        for (int i = 0; i < wordList.size(); i++) text.append(wordList.get(i)).append(i % 3 == 0 ? "\n" : " \t");
+        DAWG read = new DAWGBuilder(nodeType).addAll(new StringReader(text.toString())).build();
+
+        boolean result = sameWords("type " + nodeType + " built from a reader", read, wordList)
+                && sameCounts("type " + nodeType + " built from a reader", dictionary.countEdgesAndNodes(), read);
+
+        String[][] unsorted = {{"b", "a"}, {"ab", "a"}, {"abc", "abb"}};
+        for (String[] words : unsorted) {
+            try {
+                new DAWGBuilder(nodeType).add(words[0]).add(words[1]);
+                result = false;
+                System.out.println("the builder took \"" + words[1] + "\" after \"" + words[0] + "\"");
+            } catch (IllegalArgumentException e) {
+                //expected
+            }
+        }
+        try {
+            new DAWGBuilder(nodeType).addAll(new StringReader("cat dog bird"));
+            result = false;
+            System.out.println("the builder took unsorted words from a reader");
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+
+        result &= sameWords("type " + nodeType + " with a repeated word",
+                new DAWGBuilder(nodeType).add("a").add("a").add("b").build(), Arrays.asList("a", "b"));
+
+        System.out.println(result ? "The builder gave the same graph and rejected unsorted words"
+                : "The builder went wrong");
+
+        return result;
+
+    }
+
+    //looks up some words and some misses with metrics on and checks the counters against what those lookups must have
+    //done. A miss is a word with a letter that isn't in the dictionary added, so it gets exactly one letter short.
+    private boolean testLookupMetrics() {
+
+        System.out.println("Testing lookup metrics...");
+
+        LookupMetrics metrics = new LookupMetrics(true);
+        dictionary.setLookupMetrics(metrics);
+
+        long depth = 0;
+        long missDepth = 0;
+        int lookups = 0;
+        int misses = 0;
+        for (int i = 0; i < wordList.size(); i += 50) {
+            String word = wordList.get(i);
+            boolean miss = i % 100 == 0;
+            dictionary.containsWord(miss ? word + "#" : word);
+            depth += word.length();
+            if (miss) {
+                missDepth += word.length();
+                misses++;
+            }
+            lookups++;
+        }
+
+        long histogramTotal = 0;
+        for (long count : metrics.getDepthHistogram()) histogramTotal += count;
+        List<LookupMetrics.HotNode> hot = metrics.getHotNodes(1);
+
+        //every letter of a word takes one getChild, and a miss takes one more to find the letter isn't there
+        boolean result = metrics.getLookups() == lookups && metrics.getMisses() == misses
+                && metrics.getHits() == lookups - misses && histogramTotal == lookups
+                && metrics.getAverageDepth() == (double) depth / lookups
+                && metrics.getAverageMissDepth() == (double) missDepth / misses
+                && metrics.getChildLookups() == depth + misses && metrics.getComparisons() >= depth
+                && hot.size() == 1 && hot.get(0).getPrefix().isEmpty() && hot.get(0).getVisits() == lookups;
+
+        //batches are counted word by word, and searches on their own
+        dictionary.containsAll(Arrays.asList(wordList.get(0), "#"));
+        int matches = dictionary.wordsMatching("c?t", Integer.MAX_VALUE).size();
+        result &= metrics.getLookups() == lookups + 2 && metrics.getHits() == lookups - misses + 1
+                && metrics.getSearches() == 1 && metrics.getSearchResults() == matches && metrics.getSearchNodes() > 0;
+
+        metrics.reset();
+        result &= metrics.getLookups() == 0 && metrics.getChildLookups() == 0 && metrics.getSearches() == 0
+                && metrics.getHotNodes(1).isEmpty();
+
+        dictionary.setLookupMetrics(null);
+        dictionary.containsWord(wordList.get(0));
+        result &= metrics.getLookups() == 0;
+
+        System.out.println(result ? "Lookup metrics counted " + lookups + " lookups correctly"
+                : "Lookup metrics are wrong: " + metrics);
+
+        return result;
+
+    }
+
+    //checks AffixDAWG's suffix queries, which come back ordered by their reversed spelling, and its prefix and suffix
+    //queries, with and without a limit, against a scan of the word list. The pairs make either side the smaller one.
+    private boolean testAffixDictionary() {
+
+        System.out.println("Testing affix dictionary...");
+
+        AffixDAWG affixes = new AffixDAWG(wordList, nodeType);
+        boolean result = affixes.size() == wordList.size();
+
+        Comparator<String> backwards = Comparator.comparing((String word) -> new StringBuilder(word).reverse().toString());
+        for (String suffix : new String[]{"", "s", "ing", "tion", "xyzzy"}) {
+
+            List<String> expected = new ArrayList<>();
+            for (String word : wordList) {
+                if (word.endsWith(suffix)) expected.add(word);
+            }
+            expected.sort(backwards);
+
+            if (!affixes.wordsWithSuffix(suffix, Integer.MAX_VALUE).equals(expected)
+                    || !affixes.wordsWithSuffix(suffix, 5).equals(expected.subList(0, Math.min(5, expected.size())))
+                    || affixes.countWithSuffix(suffix) != expected.size()) {
+                result = false;
+                System.out.println("wordsWithSuffix(" + suffix + ") didn't match the word list");
+            }
+        }
+
+        String[][] affixPairs = {{"un", "able"}, {"re", "ing"}, {"s", "s"}, {"a", "tion"}, {"ab", "b"}, {"zz", "q"}};
+        for (String[] pair : affixPairs) {
+
+            List<String> expected = new ArrayList<>();
+            for (String word : wordList) {
+                if (word.startsWith(pair[0]) && word.endsWith(pair[1])) expected.add(word);
+            }
+
+            if (!affixes.wordsWithPrefixAndSuffix(pair[0], pair[1], Integer.MAX_VALUE).equals(expected)
+                    || !affixes.wordsWithPrefixAndSuffix(pair[0], pair[1], 5)
+                            .equals(expected.subList(0, Math.min(5, expected.size())))) {
+                result = false;
+                System.out.println("wordsWithPrefixAndSuffix(" + pair[0] + ", " + pair[1]
+                        + ") didn't match the word list");
+            }
+        }
+
+        System.out.println(result ? "Affix queries matched the scan" : "Some affix queries didn't match the scan");
+
+        return result;
+
+    }
+
+    //builds the word list again in parallel, on a pool with more threads than this machine may have cores so that the
+    //list is always split, and checks it gives the same minimal graph as the sequential build
+    private boolean testParallelBuild() {
+
+        System.out.println("Testing parallel build...");
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        long startTime = System.nanoTime();
+        DAWG parallel;
+        try {
+            parallel = DAWGBuilder.buildParallel(wordList, nodeType, pool);
+        } finally {
+            pool.shutdown();
+        }
+        double totalTime = (double) (System.nanoTime() - startTime) / 1000000000;
+
+        boolean result = sameWords("type " + nodeType + " built in parallel", parallel, wordList)
+                && sameCounts("type " + nodeType + " built in parallel", dictionary.countEdgesAndNodes(), parallel);
+
+        System.out.println(result ? "Parallel build gave the same graph in " + totalTime + " seconds"
+                : "Parallel build gave a different graph");
+
+        return result;
+
+    }
+
+    //writes the dictionary in the text format and reads it back into every node type. Shared nodes have to be written
+    //once and referred to after that, so the graph that comes back has to be just as small as the one written.
+    private boolean testTextRoundTrip() throws IOException, InvalidDictionaryFormatException {
+
+        System.out.println("Testing the text format round trip...");
+
+        EdgeAndNodeCounter original = dictionary.countEdgesAndNodes();
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        dictionary.writeOut(text);
+
+        boolean result = true;
+
+        for (int readType : NODE_TYPES) {
+            DAWG read = new DAWG(new ByteArrayInputStream(text.toByteArray()), readType);
+            result &= sameCounts("type " + nodeType + " read back from text as " + readType, original, read)
+                    && sameWords("type " + nodeType + " read back from text as " + readType, read, wordList);
+        }
+
+        System.out.println(text.size() + " bytes of text. " + (result ? "Every node type read back the same graph"
+                : "Some node types read back a different graph"));
+
+        return result;
+
+    }
+
+    //whether the dictionary has as many nodes and edges as the counts
+    private static boolean sameCounts(String description, EdgeAndNodeCounter expected, DAWG dictionary) {
+
+        EdgeAndNodeCounter counter = dictionary.countEdgesAndNodes();
+        boolean result = counter.getNodeCount() == expected.getNodeCount()
+                && counter.getEdgeCount() == expected.getEdgeCount();
+
+        if (!result) {
+            System.out.println(description + " has " + counter.getNodeCount() + " nodes and " + counter.getEdgeCount()
+                    + " edges, expected " + expected.getNodeCount() + " and " + expected.getEdgeCount());
+        }
+
+        return result;
+    }
+
+    //builds the tester's node type from words over far more than 26 labels, including accented, Greek, Cyrillic and
+    //CJK letters and a supplementary character stored as a surrogate pair, and reads it back into every node type
+    //through the binary format, and through the text format where it can store the labels. A graph the text format
+    //can't store has to be refused before anything is written.
+    private boolean testUnicodeWords() throws IOException, InvalidDictionaryFormatException {
+
+        System.out.println("Testing words beyond a-z...");
+
+        List<String> textWords = new ArrayList<>(Arrays.asList("ABCDEFGHIJKLMNOPQRSTUVWXYZ", "Zebra", "apple",
+                "caf\u00e9", "cafe", "na\u00efve", "\u00fcber", "\u03bb\u03cc\u03b3\u03bf\u03c2",
+                "\u0441\u043b\u043e\u0432\u043e", "\u6f22\u5b57", "\u6f22", "stra\u00dfe"));
+        List<String> words = new ArrayList<>(textWords);
+        words.add("\ud83d\ude00smile");
+        words.add("r2d2");
+        Collections.sort(textWords);
+        Collections.sort(words);
+
+        DAWG built = new DAWG(words, nodeType);
+        boolean result = sameWords("type " + nodeType, built, words);
+
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        built.writeBinary(binary);
+        for (int readType : NODE_TYPES) {
+            DAWG read = new DAWG(new ByteArrayInputStream(binary.toByteArray()), readType);
+            result &= sameWords("type " + nodeType + " read back as " + readType, read, words);
+        }
+
+        //the word list with a label the text format can't store at the very end, so that a writer that only noticed it
+        //on the way would already have written most of the graph
+        List<String> unwritable = new ArrayList<>(wordList);
+        unwritable.add("\uffef\ud83d\ude00");
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        try {
+            new DAWG(unwritable, nodeType).writeOut(text);
+            result = false;
+            System.out.println("type " + nodeType + " wrote labels the text format can't store");
+        } catch (IllegalStateException e) {
+            if (text.size() != 0) {
+                result = false;
+                System.out.println("type " + nodeType + " wrote " + text.size() + " bytes before refusing");
+            }
+        }
+
+        text.reset();
+        new DAWG(textWords, nodeType).writeOut(text);
+        for (int readType : NODE_TYPES) {
+            DAWG read = new DAWG(new ByteArrayInputStream(text.toByteArray()), readType);
+            result &= sameWords("type " + nodeType + " read back from text as " + readType, read, textWords);
+        }
+
+        System.out.println(result ? "Words beyond a-z survived every node type and format"
+                : "Some words beyond a-z were lost");
+
+        return result;
+
+    }
+
+    //checks a compacted copy of the dictionary. Looking up every prefix of every word stops both at the ends of merged
+    //chains and part way along them, and both have to agree with the list. Then its words are enumerated, and it's
+    //written in the compacted binary format and read back into every node type.
+    private boolean testCompactedDictionary() throws IOException, InvalidDictionaryFormatException {
+
+        System.out.println("Testing compacted copy of the dictionary...");
+
+        DAWG compacted = dictionary.compact();
+        Set<String> words = new HashSet<>(wordList);
+        boolean result = sameWords("compacted", compacted, wordList);
+
+        int prefixes = 0;
+        for (String word : wordList) {
+            char[] buffer = (" " + word + "q").toCharArray();
+            for (int length = 0; length <= word.length() + 1; length++) {
+                boolean expected = words.contains(new String(buffer, 1, length));
+                if (compacted.containsWord(CharBuffer.wrap(buffer, 1, length)) != expected
+                        || compacted.containsWord(buffer, 1, length) != expected) {
+                    result = false;
+                    System.out.println("compacted containsWord(" + new String(buffer, 1, length) + ") should be "
+                            + expected);
+                }
+                prefixes++;
+            }
+        }
+        System.out.println("Looked up " + prefixes + " prefixes of the words");
+
+        for (String prefix : new String[]{"", "a", "qu", "inter", "zz", "xyzzy"}) {
+            List<String> expected = new ArrayList<>();
+            for (String word : wordList) {
+                if (word.startsWith(prefix)) expected.add(word);
+            }
+            if (!compacted.wordsWithPrefix(prefix, Integer.MAX_VALUE).equals(expected)
+                    || compacted.countWithPrefix(prefix) != expected.size()) {
+                result = false;
+                System.out.println("compacted wordsWithPrefix(" + prefix + ") didn't match the word list");
+            }
+        }
+
+        for (int i = 0; i < wordList.size(); i += 97) {
+            if (compacted.indexOf(wordList.get(i)) != i || !compacted.wordAt(i).equals(wordList.get(i))) {
+                result = false;
+                System.out.println("compacted indexOf or wordAt is wrong at " + i);
+            }
+        }
+
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        compacted.writeBinary(binary);
+        byte[] bytes = binary.toByteArray();
+        if (bytes.length < 4 || !new String(bytes, 0, 4, "US-ASCII").equals("DAWC")) {
+            result = false;
+            System.out.println("compacted dictionary wasn't written in the compacted format");
+        }
+
+        for (int readType : NODE_TYPES) {
+            DAWG read = new DAWG(new ByteArrayInputStream(bytes), readType);
+            result &= sameWords("compacted read back as " + readType, read, wordList);
+        }
+
+        System.out.println(result ? "The compacted dictionary matched the word list"
+                : "The compacted dictionary didn't match the word list");
+
+        return result;
+
+    }
+
+    //whether the dictionary holds exactly the sorted words, in order
+    private static boolean sameWords(String description, DAWG dictionary, List<String> words) {
+
+        boolean result = dictionary.getAllWords().equals(words) && dictionary.size() == words.size();
+        for (String word : words) result &= dictionary.containsWord(word);
+
+        if (!result) System.out.println(description + " doesn't have the right words: " + dictionary.getAllWords());
+
+        return result;
+    }
+
+    //gives every word a random weight, some of them negative, and checks get for every word and topK for a few prefixes
+    //against a sort of the matching words, heaviest first and alphabetical between equal weights
+    private boolean testWeightedDictionary() {
+
+        System.out.println("Testing weighted dictionary...");
+
+        Random random = new Random(7);
+        Map<String, Long> weights = new HashMap<>();
+        for (String word : wordList) {
+            //few distinct weights, so there are plenty of ties to order
+            weights.put(word, (long) random.nextInt(200) - 100);
+        }
+
+        long startTime = System.nanoTime();
+        WeightedDAWG weighted = new WeightedDAWG(weights);
+        double totalTime = (double) (System.nanoTime() - startTime) / 1000000000;
+        System.out.println("Built weighted graph with " + weighted.getNodeCount() + " nodes in " + totalTime + " seconds");
+
+        boolean result = weighted.size() == wordList.size();
+
+        for (String word : wordList) {
+            if (!weights.get(word).equals(weighted.get(word))) {
+                result = false;
+                System.out.println("get(" + word + ") gave " + weighted.get(word) + ", expected " + weights.get(word));
+            }
+        }
+        result &= weighted.get("zzzzzz") == null && weighted.get("") == null;
+
+        for (String prefix : new String[]{"", "a", "qu", "un", "zz", "xyzzy"}) {
+            for (int k : new int[]{1, 10, 100}) {
+
+                List<String> expected = new ArrayList<>();
+                for (String word : wordList) {
+                    if (word.startsWith(prefix)) expected.add(word);
+                }
+                expected.sort(Comparator.comparing((String word) -> -weights.get(word)).thenComparing(word -> word));
+
+                List<String> found = new ArrayList<>();
+                for (WeightedWord word : weighted.topK(prefix, k)) {
+                    found.add(word.getWord() + " (" + word.getWeight() + ")");
+                }
+
+                List<String> top = new ArrayList<>();
+                for (String word : expected.subList(0, Math.min(k, expected.size()))) {
+                    top.add(word + " (" + weights.get(word) + ")");
+                }
+
+                if (!found.equals(top)) {
+                    result = false;
+                    System.out.println("topK(" + prefix + ", " + k + ") gave " + found + ", expected " + top);
+                }
+            }
+        }
+
+        //weights at the ends of the range still have to come back exactly and in order
+        Map<String, Long> extremes = new HashMap<>();
+        extremes.put("a", Long.MAX_VALUE);
+        extremes.put("abc", 5L);
+        extremes.put("b", Long.MIN_VALUE);
+        extremes.put("ba", Long.MIN_VALUE + 1);
+        List<String> found = new ArrayList<>();
+        for (WeightedWord word : new WeightedDAWG(extremes).topK("", 10)) found.add(word.getWord());
+        if (!found.equals(Arrays.asList("a", "abc", "ba", "b"))) {
+            result = false;
+            System.out.println("topK over extreme weights gave " + found);
+        }
+
+        //but the difference between a and ab doesn't fit in a long, so the outputs can't be stored
+        extremes.put("ab", Long.MIN_VALUE);
+        extremes.put("b", 0L);
+        extremes.remove("ba");
+        try {
+            found.clear();
+            for (WeightedWord word : new WeightedDAWG(extremes).topK("", 10)) found.add(word.getWord());
+            result = false;
+            System.out.println("weights too far apart weren't rejected, topK gave " + found);
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+
+        System.out.println(result ? "Weighted lookups matched the weights" : "Weighted lookups didn't match the weights");
+
+        return result;
+
+    }
+
+    private static int editDistance(String a, String b) {
+
+        int[] previous = new int[b.length() + 1];
+        int[] row = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) previous[j] = j;
+
+        for (int i = 1; i <= a.length(); i++) {
+            row[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitute = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                row[j] = Math.min(substitute, Math.min(row[j - 1], previous[j]) + 1);
+            }
+            int[] swap = previous;
+            previous = row;
+            row = swap;
+        }
+
+        return previous[b.length()];
+    }
+
+    //whether the word can be spelled with the tiles of the rack, '?' being a blank
+    private static boolean spelledFrom(String word, String rack, boolean useAllTiles) {
+
+        if (useAllTiles && word.length() != rack.length()) return false;
+
+        StringBuilder tiles = new StringBuilder(rack);
+        for (int i = 0; i < word.length(); i++) {
+            int tile = tiles.indexOf(String.valueOf(word.charAt(i)));
+            if (tile < 0) tile = tiles.indexOf("?");
+            if (tile < 0) return false;
+            tiles.deleteCharAt(tile);
+        }
+
+        return true;
+    }
+
     private boolean testUnwantedWords() {
 
         boolean result = true;
@@ -197,6 +1110,9 @@ public class DictionaryTester implements Runnable {
         while (scanner.hasNext()) {
             words.add(scanner.next());
         }
+
+        //the graph gives its words back in sorted order, so the list needs to be in the same order to compare them
+        Collections.sort(words);
         return words;
     }
 
@@ -0,0 +1,218 @@
+package DAWG;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+
+//a graph flattened into compressed-sparse-row tables. Nodes are numbered breadth first starting with the root at 0,
+//and the edges of node n are label/edgeTarget[firstEdge[n] .. firstEdge[n + 1]), sorted by label.
+//This is the storage behind DAWG.FROZEN: a handful of arrays in total, however many nodes there are.
+//
+//Labels are remapped to a compact alphabet of at most 256 ranks, so that each edge stores a byte instead of a char:
+//  - if every label is within 256 of the smallest one, as the letters of most single-script lexicons are (a-z,
+//    Latin-1, Cyrillic, Greek...), a label's rank is just its distance from the smallest label
+//  - otherwise, if there are still no more than 256 distinct labels, a label's rank is its position among them
+//Ranks are stored minus 128, so that comparing them as signed bytes still puts them in label order and each node's
+//edges can still be binary searched. Larger alphabets, such as CJK, keep a char per edge.
+final class FlatGraph extends StoredGraph {
+
+    private final int nodeCount;
+    private final int edgeCount;
+
+    private final int[] firstEdge;
+    //the smallest label, and the distinct labels in order if ranks aren't simply offsets from it
+    private final char base;
+    private final char[] alphabet;
+    //one of these holds the labels: ranks if the alphabet is small enough, otherwise the labels themselves
+    private final byte[] edgeRanks;
+    private final char[] edgeLabels;
+    private final int[] edgeTarget;
+    private final BitSet terminal;
+    private final int[] wordCount;
+
+    FlatGraph(DAWGNode root) {
+
+        //number the nodes. Shared nodes must only be numbered once, so this has to go by identity.
+        IdentityHashMap<DAWGNode, Integer> ids = new IdentityHashMap<>();
+        ArrayList<DAWGNode> nodes = new ArrayList<>();
+        ids.put(root, 0);
+        nodes.add(root);
+
+        int edges = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            for (DAWGEdge child : nodes.get(i)) {
+                edges++;
+                if (!ids.containsKey(child.node)) {
+                    ids.put(child.node, nodes.size());
+                    nodes.add(child.node);
+                }
+            }
+        }
+
+        nodeCount = nodes.size();
+        edgeCount = edges;
+        firstEdge = new int[nodeCount + 1];
+        char[] labels = new char[edgeCount];
+        edgeTarget = new int[edgeCount];
+        terminal = new BitSet(nodeCount);
+        wordCount = new int[nodeCount];
+
+        int edge = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            DAWGNode node = nodes.get(i);
+            firstEdge[i] = edge;
+            if (node.isTerminal()) terminal.set(i);
+            wordCount[i] = node.wordCount();
+
+            //insertion sort, since edges usually come out already sorted and there are only a handful per node
+            int start = edge;
+            for (DAWGEdge child : node) {
+                int j = edge++;
+                while (j > start && labels[j - 1] > child.edge) {
+                    labels[j] = labels[j - 1];
+                    edgeTarget[j] = edgeTarget[j - 1];
+                    j--;
+                }
+                labels[j] = child.edge;
+                edgeTarget[j] = ids.get(child.node);
+            }
+        }
+        firstEdge[nodeCount] = edge;
+
+        char[] distinct = alphabet(labels);
+        base = distinct.length == 0 ? 0 : distinct[0];
+        alphabet = distinct.length == 0 || distinct[distinct.length - 1] - base < 256 ? null : distinct;
+        edgeRanks = distinct.length <= 256 ? ranks(labels) : null;
+        edgeLabels = edgeRanks == null ? labels : null;
+    }
+
+    //copies another stored graph, e.g. one that is mapped from a file, onto the heap
+    FlatGraph(StoredGraph graph) {
+
+        nodeCount = graph.nodeCount();
+        edgeCount = graph.edgeCount();
+        firstEdge = new int[nodeCount + 1];
+        char[] labels = new char[edgeCount];
+        edgeTarget = new int[edgeCount];
+        terminal = new BitSet(nodeCount);
+        wordCount = new int[nodeCount];
+
+        //renumber so that the root ends up at 0 like it does when flattening nodes
+        int root = graph.root();
+        int edge = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            int node = renumber(i, root);
+            firstEdge[i] = edge;
+            if (graph.isTerminal(node)) terminal.set(i);
+            wordCount[i] = graph.wordCount(node);
+            for (int from = graph.firstEdge(node); from < graph.firstEdge(node + 1); from++) {
+                labels[edge] = graph.label(from);
+                edgeTarget[edge] = renumber(graph.target(from), root);
+                edge++;
+            }
+        }
+        firstEdge[nodeCount] = edge;
+
+        char[] distinct = alphabet(labels);
+        base = distinct.length == 0 ? 0 : distinct[0];
+        alphabet = distinct.length == 0 || distinct[distinct.length - 1] - base < 256 ? null : distinct;
+        edgeRanks = distinct.length <= 256 ? ranks(labels) : null;
+        edgeLabels = edgeRanks == null ? labels : null;
+    }
+
+    //the distinct labels, in order
+    private static char[] alphabet(char[] labels) {
+
+        BitSet used = new BitSet(Character.MAX_VALUE + 1);
+        for (char label : labels) {
+            used.set(label);
+        }
+
+        char[] alphabet = new char[used.cardinality()];
+        int rank = 0;
+        for (int label = used.nextSetBit(0); label >= 0; label = used.nextSetBit(label + 1)) {
+            alphabet[rank++] = (char) label;
+        }
+        return alphabet;
+    }
+
+    private byte[] ranks(char[] labels) {
+        byte[] ranks = new byte[labels.length];
+        for (int edge = 0; edge < labels.length; edge++) {
+            ranks[edge] = (byte) (rank(labels[edge]) - 128);
+        }
+        return ranks;
+    }
+
+    //the label's rank in the alphabet. It's negative or over 255 if no edge of the graph has the label.
+    private int rank(char label) {
+        return alphabet == null ? label - base : Arrays.binarySearch(alphabet, label);
+    }
+
+    //swaps the ids of the root and node 0, which makes renumbering its own inverse
+    private static int renumber(int node, int root) {
+        if (node == root) return 0;
+        if (node == 0) return root;
+        return node;
+    }
+
+    @Override
+    int root() {
+        return 0;
+    }
+
+    @Override
+    int nodeCount() {
+        return nodeCount;
+    }
+
+    @Override
+    int edgeCount() {
+        return edgeCount;
+    }
+
+    @Override
+    boolean isTerminal(int node) {
+        return terminal.get(node);
+    }
+
+    @Override
+    int wordCount(int node) {
+        return wordCount[node];
+    }
+
+    @Override
+    int firstEdge(int node) {
+        return firstEdge[node];
+    }
+
+    @Override
+    char label(int edge) {
+        if (edgeRanks == null) return edgeLabels[edge];
+        int rank = edgeRanks[edge] + 128;
+        return alphabet == null ? (char) (base + rank) : alphabet[rank];
+    }
+
+    @Override
+    int target(int edge) {
+        return edgeTarget[edge];
+    }
+
+    @Override
+    int child(int node, char edge) {
+
+        if (edgeRanks == null) {
+            int found = Arrays.binarySearch(edgeLabels, firstEdge[node], firstEdge[node + 1], edge);
+            return found < 0 ? -1 : edgeTarget[found];
+        }
+
+        //a label that isn't in the alphabet can't be on any edge
+        int rank = rank(edge);
+        if (rank < 0 || rank > 255) return -1;
+
+        int found = Arrays.binarySearch(edgeRanks, firstEdge[node], firstEdge[node + 1], (byte) (rank - 128));
+        return found < 0 ? -1 : edgeTarget[found];
+    }
+
+}
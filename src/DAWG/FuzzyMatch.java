@@ -0,0 +1,27 @@
+package DAWG;
+
+//a word found by DAWG.fuzzyMatch along with its edit distance from the query
+public class FuzzyMatch {
+
+    private final String word;
+    private final int distance;
+
+    FuzzyMatch(String word, int distance) {
+        this.word = word;
+        this.distance = distance;
+    }
+
+    public String getWord() {
+        return word;
+    }
+
+    public int getDistance() {
+        return distance;
+    }
+
+    @Override
+    public String toString() {
+        return word + " (" + distance + ")";
+    }
+
+}
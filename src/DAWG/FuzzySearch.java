@@ -0,0 +1,124 @@
+package DAWG;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+//finds the words within a given Levenshtein distance of a query by walking the graph and filling in one row of the
+//edit distance table per letter. Words that share a prefix share the rows for it, and a subgraph is skipped as soon as
+//every entry in its row is over the limit, since going deeper can only make the distance bigger.
+class FuzzySearch {
+
+    //closest first, and alphabetical between equally close words
+    private static final Comparator<FuzzyMatch> CLOSEST_FIRST =
+            Comparator.comparingInt(FuzzyMatch::getDistance).thenComparing(FuzzyMatch::getWord);
+
+    private final CharSequence query;
+    private final int maxEdits;
+    private final int limit;
+
+    //a word can't be more than maxEdits letters longer than the query and still be close enough. It's a long so that a
+    //huge maxEdits can't overflow it.
+    private final long maxLength;
+
+    //rows[d] is the row of the table for the letters of the current path up to depth d. Rows are only allocated as
+    //deep as the walk goes, which the longest word in the graph bounds however big maxEdits is.
+    private int[][] rows = new int[16][];
+    private char[] word = new char[16];
+
+    //the best matches so far, worst on top so it can be dropped when a better one turns up
+    private final PriorityQueue<FuzzyMatch> matches;
+
+    //how many nodes the search went into, for LookupMetrics
+    private int visited;
+
+    FuzzySearch(CharSequence query, int maxEdits, int limit) {
+
+        this.query = query;
+        this.maxEdits = maxEdits;
+        this.limit = limit;
+
+        maxLength = (long) query.length() + maxEdits;
+        rows[0] = new int[query.length() + 1];
+
+        matches = new PriorityQueue<>(Collections.reverseOrder(CLOSEST_FIRST));
+    }
+
+    List<FuzzyMatch> search(DAWGNode root) {
+
+        if (limit <= 0 || maxEdits < 0) return new ArrayList<>();
+
+        for (int i = 0; i <= query.length(); i++) {
+            rows[0][i] = i;
+        }
+
+        if (root.isTerminal()) offer(0);
+        searchBelow(root, 0);
+
+        List<FuzzyMatch> found = new ArrayList<>(matches);
+        found.sort(CLOSEST_FIRST);
+        return found;
+    }
+
+    //depth is bounded by the query length plus maxEdits and by the longest word, so this recursion stays shallow
+    private void searchBelow(DAWGNode node, int depth) {
+
+        visited++;
+        if (depth >= maxLength) return;
+
+        if (depth + 1 == rows.length) {
+            rows = Arrays.copyOf(rows, 2 * rows.length);
+            word = Arrays.copyOf(word, rows.length);
+        }
+        if (rows[depth + 1] == null) rows[depth + 1] = new int[query.length() + 1];
+
+        int[] previous = rows[depth];
+        int[] row = rows[depth + 1];
+
+        for (DAWGEdge child : node) {
+
+            char letter = child.edge;
+            row[0] = depth + 1;
+            int smallest = row[0];
+
+            for (int i = 1; i <= query.length(); i++) {
+                int substitute = previous[i - 1] + (query.charAt(i - 1) == letter ? 0 : 1);
+                int insert = row[i - 1] + 1;
+                int delete = previous[i] + 1;
+                row[i] = Math.min(substitute, Math.min(insert, delete));
+                smallest = Math.min(smallest, row[i]);
+            }
+
+            //every way of continuing from here is already too far from the query
+            if (smallest > bound()) continue;
+
+            word[depth] = letter;
+            if (child.node.isTerminal()) offer(depth + 1);
+            searchBelow(child.node, depth + 1);
+        }
+    }
+
+    int nodesVisited() {
+        return visited;
+    }
+
+    //the largest distance still worth looking for. Once there are enough matches only closer ones can get in, since
+    //words are visited in sorted order and a later word at the same distance would lose the tie.
+    private int bound() {
+        if (matches.size() < limit) return maxEdits;
+        return matches.peek().getDistance() - 1;
+    }
+
+    private void offer(int length) {
+
+        int distance = rows[length][query.length()];
+        if (distance > bound()) return;
+
+        matches.add(new FuzzyMatch(new String(word, 0, length), distance));
+        if (matches.size() > limit) matches.poll();
+    }
+
+}
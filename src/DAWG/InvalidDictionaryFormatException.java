@@ -1,4 +1,12 @@
 package DAWG;
 
 public class InvalidDictionaryFormatException extends Exception {
+
+    public InvalidDictionaryFormatException() {
+    }
+
+    public InvalidDictionaryFormatException(String message) {
+        super(message);
+    }
+
 }
@@ -0,0 +1,247 @@
+package DAWG;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+//what lookups cost, for a dictionary it's been given to with DAWG.setLookupMetrics. It counts lookups, hits and
+//misses, how deep each lookup got before it found its word or gave up, how many getChild calls that took and how many
+//edge labels those calls compared. It can also count how often each node is visited, to find the hot ones.
+//
+//Prefix queries count as a lookup of the prefix, which is a hit if some word starts with it. The fuzzy, pattern and
+//rack searches walk whole subgraphs rather than one path, so they're counted separately, by how many nodes each search
+//went into and how many words it returned.
+//
+//All the counters are LongAdders, so lookups from many threads don't contend on them. A dictionary with no metrics
+//doesn't pay for any of this beyond checking a field for null.
+public class LookupMetrics {
+
+    //lookups at least this deep all go in the last bucket of the depth histogram
+    public static final int MAX_DEPTH = 32;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder depth = new LongAdder();
+    private final LongAdder missDepth = new LongAdder();
+    private final LongAdder childLookups = new LongAdder();
+    private final LongAdder comparisons = new LongAdder();
+    private final LongAdder[] depthHistogram = new LongAdder[MAX_DEPTH + 1];
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder searchNodes = new LongAdder();
+    private final LongAdder searchResults = new LongAdder();
+
+    //visits per node, or null if hot nodes aren't being tracked
+    private final Map<Object, HotNode> hotNodes;
+
+    public LookupMetrics() {
+        this(false);
+    }
+
+    //tracking hot nodes keeps a counter for every node any lookup reaches, which costs a map update per letter
+    public LookupMetrics(boolean trackHotNodes) {
+
+        for (int i = 0; i < depthHistogram.length; i++) {
+            depthHistogram[i] = new LongAdder();
+        }
+
+        hotNodes = trackHotNodes ? new ConcurrentHashMap<>() : null;
+    }
+
+    //a node and how many lookups have passed through it. The prefix is the first one seen to lead to the node; since
+    //nodes are shared, other prefixes may lead to it as well.
+    public static class HotNode {
+
+        private final String prefix;
+        private final int numChildren;
+        private final LongAdder visits = new LongAdder();
+
+        HotNode(String prefix, int numChildren) {
+            this.prefix = prefix;
+            this.numChildren = numChildren;
+        }
+
+        public String getPrefix() {
+            return prefix;
+        }
+
+        public int getNumChildren() {
+            return numChildren;
+        }
+
+        public long getVisits() {
+            return visits.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "\"" + prefix + "\" (" + numChildren + " edges): " + getVisits();
+        }
+    }
+
+    //getChild implementations call this with the number of edge labels they compared to find a child
+    void recordComparisons(int count) {
+        childLookups.increment();
+        comparisons.add(count);
+    }
+
+    //the lookup of word reached node after depth letters
+    void recordVisit(DAWGNode node, CharSequence word, int depth) {
+
+        if (hotNodes == null) return;
+
+        //stored graph views compare by node id, but the node classes compare their whole subgraphs, so only identity
+        //will do for them
+        Object key = node instanceof StoredGraphNode ? node : new IdentityKey(node);
+        hotNodes.computeIfAbsent(key, k -> new HotNode(word.subSequence(0, depth).toString(), node.numChildren()))
+                .visits.increment();
+    }
+
+    //a lookup got depth letters into its word and either found it or didn't
+    void recordLookup(int depth, boolean found) {
+
+        lookups.increment();
+        this.depth.add(depth);
+        depthHistogram[Math.min(depth, MAX_DEPTH)].increment();
+
+        if (found) hits.increment();
+        else missDepth.add(depth);
+    }
+
+    //a fuzzy, pattern or rack search went into the given number of nodes and returned the given number of words
+    void recordSearch(int nodes, int results) {
+        searches.increment();
+        searchNodes.add(nodes);
+        searchResults.add(results);
+    }
+
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return getLookups() - getHits();
+    }
+
+    public double getHitRatio() {
+        long lookups = getLookups();
+        return lookups == 0 ? 0 : (double) getHits() / lookups;
+    }
+
+    //the average number of letters a lookup got through
+    public double getAverageDepth() {
+        long lookups = getLookups();
+        return lookups == 0 ? 0 : (double) depth.sum() / lookups;
+    }
+
+    //the average number of letters a lookup got through before it found the word wasn't there
+    public double getAverageMissDepth() {
+        long misses = getMisses();
+        return misses == 0 ? 0 : (double) missDepth.sum() / misses;
+    }
+
+    public long getChildLookups() {
+        return childLookups.sum();
+    }
+
+    public long getComparisons() {
+        return comparisons.sum();
+    }
+
+    //the average number of edge labels getChild compared per call
+    public double getAverageComparisons() {
+        long childLookups = getChildLookups();
+        return childLookups == 0 ? 0 : (double) getComparisons() / childLookups;
+    }
+
+    //element i is the number of lookups that got exactly i letters deep (MAX_DEPTH or more for the last one)
+    public long[] getDepthHistogram() {
+        long[] histogram = new long[depthHistogram.length];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = depthHistogram[i].sum();
+        }
+        return histogram;
+    }
+
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    public long getSearchNodes() {
+        return searchNodes.sum();
+    }
+
+    public long getSearchResults() {
+        return searchResults.sum();
+    }
+
+    //the average number of nodes a fuzzy, pattern or rack search went into
+    public double getAverageSearchNodes() {
+        long searches = getSearches();
+        return searches == 0 ? 0 : (double) getSearchNodes() / searches;
+    }
+
+    //the most visited nodes, most visited first, or an empty list if hot nodes aren't being tracked
+    public List<HotNode> getHotNodes(int limit) {
+
+        List<HotNode> nodes = new ArrayList<>();
+        if (hotNodes == null) return nodes;
+
+        nodes.addAll(hotNodes.values());
+        nodes.sort(Comparator.comparingLong(HotNode::getVisits).reversed());
+
+        return nodes.subList(0, Math.min(limit, nodes.size()));
+    }
+
+    public void reset() {
+
+        lookups.reset();
+        hits.reset();
+        depth.reset();
+        missDepth.reset();
+        childLookups.reset();
+        comparisons.reset();
+        for (LongAdder bucket : depthHistogram) {
+            bucket.reset();
+        }
+        searches.reset();
+        searchNodes.reset();
+        searchResults.reset();
+
+        if (hotNodes != null) hotNodes.clear();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d lookups, %.1f%% hits, average depth %.2f (%.2f for misses), %.2f comparisons per getChild,"
+                        + " %d searches into %.1f nodes each",
+                getLookups(), 100 * getHitRatio(), getAverageDepth(), getAverageMissDepth(), getAverageComparisons(),
+                getSearches(), getAverageSearchNodes());
+    }
+
+    private static class IdentityKey {
+
+        private final DAWGNode node;
+
+        IdentityKey(DAWGNode node) {
+            this.node = node;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof IdentityKey && ((IdentityKey) o).node == node;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(node);
+        }
+    }
+
+}
@@ -0,0 +1,82 @@
+package DAWG;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+//the table minimization interns nodes in: one node for each distinct structure, keyed by NodeSignature. Interning a
+//node whose children are already interned gives back the node that represents its structure, which is the node itself
+//if nothing equivalent was interned before.
+//
+//This is the only structural map in the package. Code that just needs to know which nodes it has already seen on a
+//walk keys them by identity instead (an IdentityHashMap, or node ids for stored graphs): that never calls equals or
+//hashCode on a node, and it stays correct for graphs that aren't minimal.
+class NodeInterner {
+
+    private final Map<NodeSignature, DAWGNode> nodes;
+
+    //a concurrent table can be shared by the builders of a parallel build
+    NodeInterner(boolean concurrent) {
+        nodes = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+    }
+
+    //returns the interned node with the same structure, interning this one if there isn't one yet. The node's children
+    //have to be interned already.
+    DAWGNode intern(DAWGNode node) {
+        return intern(node, true);
+    }
+
+    //interns a node without compacting it, for nodes that may already be shared with readers
+    private DAWGNode intern(DAWGNode node, boolean compact) {
+
+        NodeSignature signature = node.signature();
+        DAWGNode existing = nodes.get(signature);
+        if (existing != null) return existing;
+
+        //the node is final from here on, and it's compacted before any other builder can see it
+        if (compact) node.compact();
+        existing = nodes.putIfAbsent(signature, node);
+        return existing != null ? existing : node;
+    }
+
+    //interns every node of a graph, children before parents, so working out each signature never has to recurse into
+    //children that haven't been hashed yet. Returns how many distinct nodes the graph has.
+    //
+    //The graph is one that's already been built, and readers may be using it (an earlier ConcurrentDAWG version, say),
+    //so its nodes are left exactly as they are. They were compacted when they were built.
+    int internAll(DAWGNode root) {
+
+        Set<DAWGNode> interned = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<DAWGNode> stack = new ArrayDeque<>();
+        stack.push(root);
+
+        while (!stack.isEmpty()) {
+
+            DAWGNode node = stack.peek();
+            if (interned.contains(node)) {
+                stack.pop();
+                continue;
+            }
+
+            boolean childrenInterned = true;
+            for (DAWGEdge child : node) {
+                if (!interned.contains(child.node)) {
+                    stack.push(child.node);
+                    childrenInterned = false;
+                }
+            }
+
+            if (childrenInterned) {
+                intern(node, false);
+                interned.add(node);
+                stack.pop();
+            }
+        }
+
+        return interned.size();
+    }
+
+    int size() {
+        return nodes.size();
+    }
+
+}
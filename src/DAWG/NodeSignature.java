@@ -0,0 +1,118 @@
+package DAWG;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+//a structural key for a node whose children have already been minimized. Since every child is already the single
+//interned copy of its suffix set, two nodes are equivalent exactly when they agree on their terminus flag and on
+//their (edge, child) pairs, with children compared by identity. This avoids walking the whole subtree like equals() does.
+//
+//The hash is structural too: it's built from the children's own (cached) hash codes rather than their identities, so
+//it's the same for any two nodes that are equal, even in different graphs. The nodes use it as their hashCode.
+public final class NodeSignature {
+
+    private final boolean terminus;
+    private final char[] edges;
+    private final DAWGNode[] children;
+    private final int hash;
+
+    NodeSignature(DAWGNode node) {
+
+        terminus = node.isTerminal();
+
+        int numChildren = node.numChildren();
+        edges = new char[numChildren];
+        children = new DAWGNode[numChildren];
+
+        //keep the pairs sorted by edge so the key doesn't depend on the order the children were added in
+        int size = 0;
+        for (DAWGEdge child : node) {
+            int i = size++;
+            while (i > 0 && edges[i - 1] > child.edge) {
+                edges[i] = edges[i - 1];
+                children[i] = children[i - 1];
+                i--;
+            }
+            edges[i] = child.edge;
+            children[i] = child.node;
+        }
+
+        //the children's hashes are normally cached already. If they aren't, they're worked out deepest first here, so
+        //a long chain of unhashed nodes doesn't recurse once per node.
+        for (int i = 0; i < numChildren; i++) {
+            if (!children[i].isHashed()) hashAll(children[i]);
+        }
+
+        int h = terminus ? 1 : 0;
+        for (int i = 0; i < numChildren; i++) {
+            h = 31 * h + edges[i];
+            h = 31 * h + children[i].hashCode();
+        }
+        hash = mix(h);
+    }
+
+    //parents build their hash out of this one, so mix the bits well or similar subgraphs pile up on the same values
+    static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    //caches the hash of every unhashed node below and including this one, children before parents, like
+    //NodeInterner.internAll. Each node is hashed once all of its children are, so hashing it never recurses.
+    private static void hashAll(DAWGNode node) {
+
+        ArrayDeque<DAWGNode> stack = new ArrayDeque<>();
+        stack.push(node);
+
+        while (!stack.isEmpty()) {
+
+            DAWGNode next = stack.peek();
+            if (next.isHashed()) {
+                stack.pop();
+                continue;
+            }
+
+            boolean childrenHashed = true;
+            for (DAWGEdge child : next) {
+                if (!child.node.isHashed()) {
+                    stack.push(child.node);
+                    childrenHashed = false;
+                }
+            }
+
+            if (childrenHashed) {
+                next.hashCode();
+                stack.pop();
+            }
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+
+        if (this == o) return true;
+        if (!(o instanceof NodeSignature)) return false;
+
+        NodeSignature that = (NodeSignature) o;
+
+        if (this.hash != that.hash || this.terminus != that.terminus) return false;
+
+        if (!Arrays.equals(this.edges, that.edges)) return false;
+
+        for (int i = 0; i < children.length; i++) {
+            if (this.children[i] != that.children[i]) return false;
+        }
+
+        return true;
+    }
+
+}
@@ -0,0 +1,270 @@
+package DAWG;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+//finds the words matching a wildcard pattern. '?' matches any one letter, '*' matches any run of letters (including
+//none), [abc] and [a-z] match one letter from a set, [^abc] matches one letter not in it, and a backslash makes the
+//next character literal.
+//
+//The pattern is run as a small NFA alongside a depth first walk of the graph: every node on the walk carries the set of
+//pattern positions that can be reached by the letters leading to it, as a bitmask. A subgraph is skipped as soon as
+//that set is empty, and when every live position wants one particular letter the walk goes straight to those children
+//with getChild instead of looking at every edge.
+class PatternSearch {
+
+    //one more bit is needed for the position after the last token, which means the whole pattern matched
+    static final int MAX_TOKENS = 63;
+
+    private static final int LITERAL = 0;
+    private static final int ANY = 1;
+    private static final int STAR = 2;
+    private static final int CLASS = 3;
+
+    private final int[] types;
+    private final char[] literals;
+    //for CLASS tokens, pairs of inclusive ranges
+    private final char[][] ranges;
+    private final boolean[] negated;
+    private final int length;
+
+    private final long accept;
+
+    //how many nodes the last search went into, for LookupMetrics
+    private int visited;
+
+    PatternSearch(CharSequence pattern) {
+
+        List<Integer> typeList = new ArrayList<>();
+        List<Character> literalList = new ArrayList<>();
+        List<char[]> rangeList = new ArrayList<>();
+        List<Boolean> negatedList = new ArrayList<>();
+
+        for (int i = 0; i < pattern.length(); i++) {
+
+            char c = pattern.charAt(i);
+            char[] classRanges = null;
+            boolean classNegated = false;
+            int type;
+
+            if (c == '?') {
+                type = ANY;
+            } else if (c == '*') {
+                //a run of stars matches the same as one star
+                if (!typeList.isEmpty() && typeList.get(typeList.size() - 1) == STAR) continue;
+                type = STAR;
+            } else if (c == '[') {
+                int close = i + 1;
+                if (close < pattern.length() && pattern.charAt(close) == '^') close++;
+                //a ']' straight after the '[' is part of the set
+                if (close < pattern.length() && pattern.charAt(close) == ']') close++;
+                while (close < pattern.length() && pattern.charAt(close) != ']') close++;
+                if (close >= pattern.length()) {
+                    throw new IllegalArgumentException("unclosed character class in pattern " + pattern);
+                }
+
+                int start = i + 1;
+                if (pattern.charAt(start) == '^') {
+                    classNegated = true;
+                    start++;
+                }
+
+                StringBuilder rangeBuilder = new StringBuilder();
+                for (int j = start; j < close; j++) {
+                    char from = pattern.charAt(j);
+                    char to = from;
+                    if (j + 2 < close && pattern.charAt(j + 1) == '-') {
+                        to = pattern.charAt(j + 2);
+                        j += 2;
+                    }
+                    rangeBuilder.append(from).append(to);
+                }
+
+                classRanges = rangeBuilder.toString().toCharArray();
+                type = CLASS;
+                i = close;
+            } else {
+                if (c == '\\' && i + 1 < pattern.length()) c = pattern.charAt(++i);
+                type = LITERAL;
+            }
+
+            typeList.add(type);
+            literalList.add(type == LITERAL ? c : 0);
+            rangeList.add(classRanges);
+            negatedList.add(classNegated);
+        }
+
+        length = typeList.size();
+        if (length > MAX_TOKENS) {
+            throw new IllegalArgumentException("patterns can have at most " + MAX_TOKENS + " tokens");
+        }
+
+        types = new int[length];
+        literals = new char[length];
+        ranges = new char[length][];
+        negated = new boolean[length];
+        for (int i = 0; i < length; i++) {
+            types[i] = typeList.get(i);
+            literals[i] = literalList.get(i);
+            ranges[i] = rangeList.get(i);
+            negated[i] = negatedList.get(i);
+        }
+
+        accept = 1L << length;
+    }
+
+    //returns up to limit matching words in sorted order. The walk stops as soon as it has enough, which is what keeps a
+    //broad pattern like "*" from costing the whole dictionary.
+    List<String> search(DAWGNode root, int limit) {
+
+        List<String> words = new ArrayList<>();
+        if (limit <= 0) return words;
+
+        long start = closure(1L);
+        if ((start & accept) != 0 && root.isTerminal()) words.add("");
+
+        //the walk keeps a frame per depth, just like WordIterator, so long words can't overflow the stack
+        char[] word = new char[16];
+        long[] states = new long[16];
+        Iterator<?>[] stack = new Iterator<?>[16];
+
+        states[0] = start;
+        stack[0] = edges(root, start);
+        visited = 1;
+        int depth = 0;
+
+        while (depth >= 0 && words.size() < limit) {
+
+            @SuppressWarnings("unchecked")
+            Iterator<DAWGEdge> edges = (Iterator<DAWGEdge>) stack[depth];
+
+            if (!edges.hasNext()) {
+                depth--;
+                continue;
+            }
+
+            DAWGEdge child = edges.next();
+            long next = step(states[depth], child.edge);
+            if (next == 0) continue;
+
+            if (depth + 1 >= stack.length) {
+                word = Arrays.copyOf(word, 2 * word.length);
+                states = Arrays.copyOf(states, 2 * states.length);
+                stack = Arrays.copyOf(stack, 2 * stack.length);
+            }
+
+            word[depth] = child.edge;
+            depth++;
+            states[depth] = next;
+            stack[depth] = edges(child.node, next);
+            visited++;
+
+            if ((next & accept) != 0 && child.node.isTerminal()) words.add(new String(word, 0, depth));
+        }
+
+        return words;
+    }
+
+    int nodesVisited() {
+        return visited;
+    }
+
+    //adds the positions just past any stars, since a star can match nothing
+    private long closure(long states) {
+        for (int i = 0; i < length; i++) {
+            if ((states & (1L << i)) != 0 && types[i] == STAR) states |= 1L << (i + 1);
+        }
+        return states;
+    }
+
+    //the positions reachable from the given ones by reading one letter
+    private long step(long states, char letter) {
+
+        long next = 0;
+
+        for (int i = 0; i < length; i++) {
+            if ((states & (1L << i)) == 0) continue;
+            if (types[i] == STAR) next |= 1L << i;
+            else if (matches(i, letter)) next |= 1L << (i + 1);
+        }
+
+        return closure(next);
+    }
+
+    private boolean matches(int token, char letter) {
+
+        switch (types[token]) {
+            case LITERAL:
+                return literals[token] == letter;
+            case ANY:
+                return true;
+            case CLASS:
+                char[] tokenRanges = ranges[token];
+                boolean inClass = false;
+                for (int i = 0; i < tokenRanges.length && !inClass; i += 2) {
+                    inClass = tokenRanges[i] <= letter && letter <= tokenRanges[i + 1];
+                }
+                return inClass != negated[token];
+            default:
+                return false;
+        }
+    }
+
+    //the edges worth following from a node. If every live position is a literal, only those letters can lead anywhere,
+    //so they're looked up directly instead of scanning every edge.
+    private Iterator<DAWGEdge> edges(DAWGNode node, long states) {
+
+        StringBuilder letters = new StringBuilder();
+
+        for (int i = 0; i < length; i++) {
+            if ((states & (1L << i)) == 0) continue;
+            if (types[i] != LITERAL) return node.iterator();
+            if (letters.indexOf(String.valueOf(literals[i])) < 0) letters.append(literals[i]);
+        }
+
+        char[] sorted = letters.toString().toCharArray();
+        Arrays.sort(sorted);
+        return new LiteralEdges(node, sorted);
+    }
+
+    //the children of a node along a few given letters, in order, skipping any the node doesn't have
+    private static class LiteralEdges implements Iterator<DAWGEdge> {
+
+        private final DAWGNode node;
+        private final char[] letters;
+        private int current;
+        private DAWGEdge next;
+
+        LiteralEdges(DAWGNode node, char[] letters) {
+            this.node = node;
+            this.letters = letters;
+            next = advance();
+        }
+
+        private DAWGEdge advance() {
+            while (current < letters.length) {
+                char letter = letters[current++];
+                DAWGNode child = node.getChild(letter);
+                if (child != null) return new DAWGEdge(letter, child);
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public DAWGEdge next() {
+            if (next == null) throw new NoSuchElementException();
+            DAWGEdge edge = next;
+            next = advance();
+            return edge;
+        }
+    }
+
+}
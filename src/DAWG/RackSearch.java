@@ -0,0 +1,106 @@
+package DAWG;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//finds the words that can be spelled with the tiles of a rack, as in Scrabble. Each letter of the rack can be used as
+//many times as it appears, and a '?' is a blank that can stand for any letter. Only edges whose letter is still left
+//on the rack (or that a blank can cover) are followed, so the walk never goes deeper than the rack is long.
+class RackSearch {
+
+    private final char[] letters;
+    private final int[] counts;
+    private int blanks;
+    private final int rackSize;
+    private final boolean useAllTiles;
+
+    private final char[] word;
+    private final List<String> words = new ArrayList<>();
+    private int limit;
+
+    //how many nodes the search went into, for LookupMetrics
+    private int visited;
+
+    RackSearch(CharSequence rack, boolean useAllTiles) {
+
+        this.useAllTiles = useAllTiles;
+
+        char[] tiles = rack.toString().toCharArray();
+        Arrays.sort(tiles);
+
+        //the distinct letters of the rack, sorted, and how many of each there are
+        char[] distinct = new char[tiles.length];
+        int[] distinctCounts = new int[tiles.length];
+        int size = 0;
+        for (char tile : tiles) {
+            if (tile == '?') {
+                blanks++;
+            } else if (size > 0 && distinct[size - 1] == tile) {
+                distinctCounts[size - 1]++;
+            } else {
+                distinct[size] = tile;
+                distinctCounts[size++] = 1;
+            }
+        }
+
+        letters = Arrays.copyOf(distinct, size);
+        counts = Arrays.copyOf(distinctCounts, size);
+        rackSize = tiles.length;
+        word = new char[rackSize];
+    }
+
+    //returns up to limit words in sorted order
+    List<String> search(DAWGNode root, int limit) {
+
+        this.limit = limit;
+        if (limit <= 0) return words;
+
+        if (root.isTerminal() && (!useAllTiles || rackSize == 0)) words.add("");
+        searchBelow(root, 0);
+
+        return words;
+    }
+
+    //depth never gets past the number of tiles, so the recursion stays shallow
+    private void searchBelow(DAWGNode node, int depth) {
+
+        visited++;
+        if (depth == rackSize) return;
+
+        //without blanks only the letters left on the rack matter, so look those up directly
+        if (blanks == 0) {
+            for (int i = 0; i < letters.length && words.size() < limit; i++) {
+                if (counts[i] == 0) continue;
+                DAWGNode child = node.getChild(letters[i]);
+                if (child != null) visit(child, letters[i], i, depth);
+            }
+            return;
+        }
+
+        for (DAWGEdge child : node) {
+            if (words.size() >= limit) return;
+            int letter = Arrays.binarySearch(letters, child.edge);
+            visit(child.node, child.edge, letter >= 0 && counts[letter] > 0 ? letter : -1, depth);
+        }
+    }
+
+    int nodesVisited() {
+        return visited;
+    }
+
+    //uses up the tile (the letter at the given index, or a blank if it's -1) to go to the child, then puts it back
+    private void visit(DAWGNode child, char edge, int letter, int depth) {
+
+        if (letter >= 0) counts[letter]--;
+        else blanks--;
+
+        word[depth] = edge;
+        if (child.isTerminal() && (!useAllTiles || depth + 1 == rackSize)) words.add(new String(word, 0, depth + 1));
+        searchBelow(child, depth + 1);
+
+        if (letter >= 0) counts[letter]++;
+        else blanks++;
+    }
+
+}
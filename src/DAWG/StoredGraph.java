@@ -0,0 +1,277 @@
+package DAWG;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+//a read-only graph kept in flat tables rather than as node objects. Nodes and edges are plain ints; the edges of a node
+//are the range firstEdge(node) .. firstEdge(node + 1), sorted by label so they can be binary searched.
+abstract class StoredGraph {
+
+    //the structural hash of every node, worked out the first time one is asked for. See hash(int).
+    private volatile int[] hashes;
+
+    abstract int root();
+
+    abstract int nodeCount();
+
+    abstract int edgeCount();
+
+    abstract boolean isTerminal(int node);
+
+    //the number of words that end at or below the node
+    abstract int wordCount(int node);
+
+    abstract int firstEdge(int node);
+
+    abstract char label(int edge);
+
+    abstract int target(int edge);
+
+    //lets go of any memory the graph holds outside the heap. The graph can't be used afterwards.
+    void release() {
+    }
+
+    int numChildren(int node) {
+        return firstEdge(node + 1) - firstEdge(node);
+    }
+
+    //returns the node the edge leads to, or -1 if the node has no such edge
+    int child(int node, char edge) {
+
+        int low = firstEdge(node);
+        int high = firstEdge(node + 1) - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char label = label(mid);
+            if (label < edge) low = mid + 1;
+            else if (label > edge) high = mid - 1;
+            else return target(mid);
+        }
+
+        return -1;
+    }
+
+    //the same binary search as child, counting the labels it compares
+    int child(int node, char edge, LookupMetrics metrics) {
+
+        int low = firstEdge(node);
+        int high = firstEdge(node + 1) - 1;
+        int comparisons = 0;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char label = label(mid);
+            comparisons++;
+            if (label < edge) low = mid + 1;
+            else if (label > edge) high = mid - 1;
+            else {
+                metrics.recordComparisons(comparisons);
+                return target(mid);
+            }
+        }
+
+        metrics.recordComparisons(comparisons);
+        return -1;
+    }
+
+    boolean containsWord(CharSequence word) {
+
+        int node = root();
+
+        for (int i = 0; i < word.length(); i++) {
+            node = child(node, word.charAt(i));
+            if (node < 0) return false;
+        }
+
+        return isTerminal(node);
+    }
+
+    boolean containsWord(char[] buffer, int offset, int length) {
+
+        int node = root();
+
+        for (int i = offset; i < offset + length; i++) {
+            node = child(node, buffer[i]);
+            if (node < 0) return false;
+        }
+
+        return isTerminal(node);
+    }
+
+    //same as DAWG.indexOf, working on node ids
+    int indexOf(CharSequence word) {
+
+        int node = root();
+        int index = 0;
+
+        for (int i = 0; i < word.length(); i++) {
+
+            if (isTerminal(node)) index++;
+
+            char letter = word.charAt(i);
+            int edge = firstEdge(node);
+            int end = firstEdge(node + 1);
+            while (edge < end && label(edge) < letter) {
+                index += wordCount(target(edge++));
+            }
+
+            if (edge == end || label(edge) != letter) return -1;
+            node = target(edge);
+        }
+
+        return isTerminal(node) ? index : -1;
+    }
+
+    //same as DAWG.wordAt, working on node ids
+    String wordAt(int index) {
+
+        StringBuilder word = new StringBuilder();
+        int node = root();
+
+        while (true) {
+
+            if (isTerminal(node)) {
+                if (index == 0) return word.toString();
+                index--;
+            }
+
+            int edge = firstEdge(node);
+            while (index >= wordCount(target(edge))) {
+                index -= wordCount(target(edge++));
+            }
+
+            word.append(label(edge));
+            node = target(edge);
+        }
+    }
+
+    //works out the word count of every node, children before parents, for graphs that weren't stored with them
+    int[] countWords() {
+
+        int[] counts = new int[nodeCount()];
+        boolean[] counted = new boolean[nodeCount()];
+
+        //a node goes on the stack once to have its children pushed, and is counted the second time it comes off
+        int[] stack = new int[16];
+        int size = 0;
+        stack[size++] = root();
+
+        while (size > 0) {
+
+            int node = stack[size - 1];
+            if (counted[node]) {
+                size--;
+                continue;
+            }
+
+            boolean childrenCounted = true;
+            for (int edge = firstEdge(node); edge < firstEdge(node + 1); edge++) {
+                int child = target(edge);
+                if (!counted[child]) {
+                    if (size == stack.length) stack = Arrays.copyOf(stack, 2 * size);
+                    stack[size++] = child;
+                    childrenCounted = false;
+                }
+            }
+
+            if (childrenCounted) {
+                int count = isTerminal(node) ? 1 : 0;
+                for (int edge = firstEdge(node); edge < firstEdge(node + 1); edge++) {
+                    count += counts[target(edge)];
+                }
+                counts[node] = count;
+                counted[node] = true;
+                size--;
+            }
+        }
+
+        return counts;
+    }
+
+    //the same structural hash NodeSignature gives an equal node of any other type, so StoredGraphNode's hashCode agrees
+    //with the equals of the other nodes
+    int hash(int node) {
+        int[] hashes = this.hashes;
+        if (hashes == null) this.hashes = hashes = hashes();
+        return hashes[node];
+    }
+
+    //works out every node's hash, children before parents, the same way countWords does
+    private int[] hashes() {
+
+        int[] hashes = new int[nodeCount()];
+        boolean[] hashed = new boolean[nodeCount()];
+
+        int[] stack = new int[16];
+        int size = 0;
+        stack[size++] = root();
+
+        while (size > 0) {
+
+            int node = stack[size - 1];
+            if (hashed[node]) {
+                size--;
+                continue;
+            }
+
+            boolean childrenHashed = true;
+            for (int edge = firstEdge(node); edge < firstEdge(node + 1); edge++) {
+                int child = target(edge);
+                if (!hashed[child]) {
+                    if (size == stack.length) stack = Arrays.copyOf(stack, 2 * size);
+                    stack[size++] = child;
+                    childrenHashed = false;
+                }
+            }
+
+            if (childrenHashed) {
+                //edges are already in label order, which is the order NodeSignature hashes them in
+                int h = isTerminal(node) ? 1 : 0;
+                for (int edge = firstEdge(node); edge < firstEdge(node + 1); edge++) {
+                    h = 31 * h + label(edge);
+                    h = 31 * h + hashes[target(edge)];
+                }
+                hashes[node] = NodeSignature.mix(h);
+                hashed[node] = true;
+                size--;
+            }
+        }
+
+        return hashes;
+    }
+
+    //same as DAWG.containsAll, keeping the path as node ids
+    void containsAll(List<? extends CharSequence> words, BitSet found) {
+
+        int[] path = new int[16];
+        path[0] = root();
+        int pathLength = 0;
+        CharSequence previous = "";
+
+        for (int w = 0; w < words.size(); w++) {
+
+            CharSequence word = words.get(w);
+
+            int depth = 0;
+            int common = Math.min(pathLength, word.length());
+            while (depth < common && word.charAt(depth) == previous.charAt(depth)) {
+                depth++;
+            }
+
+            if (word.length() >= path.length) path = Arrays.copyOf(path, Math.max(word.length() + 1, 2 * path.length));
+
+            int node = path[depth];
+            while (depth < word.length() && (node = child(node, word.charAt(depth))) >= 0) {
+                path[++depth] = node;
+            }
+
+            if (depth == word.length() && isTerminal(path[depth])) found.set(w);
+
+            pathLength = depth;
+            previous = word;
+        }
+    }
+
+}
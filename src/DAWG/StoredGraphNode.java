@@ -0,0 +1,125 @@
+package DAWG;
+
+import java.util.Iterator;
+
+//a read-only DAWGNode view of one node of a StoredGraph. Views are cheap, and views of the same graph compare equal by
+//node id, so the generic traversal code still sees each shared node as the same node. Against anything else, equals
+//and hashCode are structural like the other nodes', so a stored node and an equal node of another type agree.
+class StoredGraphNode implements DAWGNode {
+
+    private final StoredGraph graph;
+    private final int id;
+
+    StoredGraphNode(StoredGraph graph, int id) {
+        this.graph = graph;
+        this.id = id;
+    }
+
+    @Override
+    public DAWGNode getChild(char edge) {
+        int child = graph.child(id, edge);
+        return child < 0 ? null : new StoredGraphNode(graph, child);
+    }
+
+    @Override
+    public DAWGNode getChild(char edge, LookupMetrics metrics) {
+        int child = graph.child(id, edge, metrics);
+        return child < 0 ? null : new StoredGraphNode(graph, child);
+    }
+
+    @Override
+    public boolean hasChildren() {
+        return graph.numChildren(id) > 0;
+    }
+
+    @Override
+    public boolean isTerminal() {
+        return graph.isTerminal(id);
+    }
+
+    @Override
+    public void setTerminus(boolean terminus) {
+        throw new UnsupportedOperationException("frozen dictionaries are read-only");
+    }
+
+    @Override
+    public void setChild(char edge, DAWGNode child) {
+        throw new UnsupportedOperationException("frozen dictionaries are read-only");
+    }
+
+    @Override
+    public int numChildren() {
+        return graph.numChildren(id);
+    }
+
+    @Override
+    public int wordCount() {
+        return graph.wordCount(id);
+    }
+
+    @Override
+    public void setWordCount(int wordCount) {
+        throw new UnsupportedOperationException("frozen dictionaries are read-only");
+    }
+
+    @Override
+    public NodeSignature signature() {
+        return new NodeSignature(this);
+    }
+
+    //within one graph, which is minimal, the node id decides. Any other node is compared by structure, the way the other
+    //node types compare, so equals gives the same answer whichever side it's called on.
+    @Override
+    public boolean equals(Object o) {
+
+        if (this == o) return true;
+        if (!(o instanceof DAWGNode)) return false;
+
+        if (o instanceof StoredGraphNode && ((StoredGraphNode) o).graph == graph) {
+            return ((StoredGraphNode) o).id == id;
+        }
+
+        DAWGNode that = (DAWGNode) o;
+
+        if (this.hashCode() != that.hashCode()) return false;
+
+        if (this.isTerminal() != that.isTerminal()) return false;
+
+        if (this.numChildren() != that.numChildren()) return false;
+
+        for (DAWGEdge child : this) {
+            if (!child.node.equals(that.getChild(child.edge))) return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return graph.hash(id);
+    }
+
+    @Override
+    public Iterator<DAWGEdge> iterator() {
+        return new childIterator();
+    }
+
+    private class childIterator implements Iterator<DAWGEdge> {
+
+        private int current = graph.firstEdge(id);
+        private final int end = graph.firstEdge(id + 1);
+
+        @Override
+        public boolean hasNext() {
+            return current < end;
+        }
+
+        @Override
+        public DAWGEdge next() {
+            DAWGEdge child = new DAWGEdge(graph.label(current), new StoredGraphNode(graph, graph.target(current)));
+            current++;
+            return child;
+        }
+    }
+
+}
@@ -3,10 +3,17 @@ package DAWG;
 public class TestDriver {
 
     public static void main(String[] args) {
-        new DictionaryTester
+        DictionaryTester tester = new DictionaryTester
                 ("dictionaries/bigWordList.txt",
                         "testOutput",
-                        DAWG.ARRAY)
+                        DAWG.ARRAY);
+        tester.run();
+        tester.runSharedTests();
+
+        new DictionaryTester
+                ("dictionaries/bigWordList.txt",
+                        "testOutputCompacted",
+                        DAWG.COMPACTED)
                 .run();
     }
 
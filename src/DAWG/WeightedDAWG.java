@@ -0,0 +1,205 @@
+package DAWG;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+//a dictionary that keeps a weight with each word, such as how often it's used, in a minimal acyclic transducer. The
+//weight is spread over the path: each edge has an output, and a word's weight is the sum of the outputs along its path
+//plus the final output of the node it ends at. Words that share prefixes share those outputs, and suffixes are shared
+//like they are in a DAWG wherever what they add to the weight is the same. See WeightedDAWGBuilder.
+//
+//Every node also records the largest weight that any word below it adds, which is what lets topK search best first
+//and stop as soon as it has k words, without looking at the rest.
+//
+//The graph is kept in flat arrays like DAWG.FROZEN and is read-only, so it can be read from any number of threads once
+//it's been built and safely published.
+public class WeightedDAWG {
+
+    private final int nodeCount;
+    private final int size;
+
+    //nodes are numbered breadth first from the root at 0, and the edges of node n are [firstEdge[n], firstEdge[n + 1])
+    private final int[] firstEdge;
+    private final char[] edgeLabels;
+    private final int[] edgeTarget;
+    private final long[] edgeOutput;
+    private final BitSet terminal;
+    private final long[] finalOutput;
+    private final long[] maxWeight;
+
+    //builds the dictionary from a map of words to their weights, such as a HashMap of frequencies. The caller's map is
+    //left as it is.
+    public WeightedDAWG(Map<String, Long> weights) {
+        this(new WeightedDAWGBuilder().addAll(new TreeMap<>(weights)).finish(), weights.size());
+    }
+
+    //flattens the nodes a builder has made. Shared nodes must only be numbered once, so this has to go by identity.
+    WeightedDAWG(WeightedNode root, int size) {
+
+        this.size = size;
+
+        IdentityHashMap<WeightedNode, Integer> ids = new IdentityHashMap<>();
+        List<WeightedNode> nodes = new ArrayList<>();
+        ids.put(root, 0);
+        nodes.add(root);
+
+        int edges = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            WeightedNode node = nodes.get(i);
+            edges += node.size;
+            for (int edge = 0; edge < node.size; edge++) {
+                if (!ids.containsKey(node.targets[edge])) {
+                    ids.put(node.targets[edge], nodes.size());
+                    nodes.add(node.targets[edge]);
+                }
+            }
+        }
+
+        nodeCount = nodes.size();
+        firstEdge = new int[nodeCount + 1];
+        edgeLabels = new char[edges];
+        edgeTarget = new int[edges];
+        edgeOutput = new long[edges];
+        terminal = new BitSet(nodeCount);
+        finalOutput = new long[nodeCount];
+        maxWeight = new long[nodeCount];
+
+        int edge = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            WeightedNode node = nodes.get(i);
+            firstEdge[i] = edge;
+            if (node.terminal) terminal.set(i);
+            finalOutput[i] = node.finalOutput;
+            maxWeight[i] = node.maxWeight;
+            for (int j = 0; j < node.size; j++) {
+                edgeLabels[edge] = node.labels[j];
+                edgeTarget[edge] = ids.get(node.targets[j]);
+                edgeOutput[edge] = node.outputs[j];
+                edge++;
+            }
+        }
+        firstEdge[nodeCount] = edge;
+    }
+
+    //returns the word's weight, or null if it isn't in the dictionary
+    public Long get(CharSequence word) {
+
+        int node = 0;
+        long weight = 0;
+
+        for (int i = 0; i < word.length(); i++) {
+            int edge = edge(node, word.charAt(i));
+            if (edge < 0) return null;
+            weight += edgeOutput[edge];
+            node = edgeTarget[edge];
+        }
+
+        return terminal.get(node) ? weight + finalOutput[node] : null;
+    }
+
+    public boolean containsWord(CharSequence word) {
+        return get(word) != null;
+    }
+
+    //returns the k heaviest words that start with the prefix, heaviest first. Words of equal weight come in
+    //alphabetical order.
+    //
+    //The search keeps a queue of partial words ordered by the heaviest weight each of them can still reach, which is
+    //the outputs so far plus the max weight of the node they've got to. The first complete word to come off the queue
+    //is the heaviest one left, so the search stops after k of them, and a subgraph whose best word can't make the top
+    //k is never expanded.
+    public List<WeightedWord> topK(CharSequence prefix, int k) {
+
+        List<WeightedWord> results = new ArrayList<>();
+        if (k <= 0) return results;
+
+        int node = 0;
+        long weight = 0;
+        for (int i = 0; i < prefix.length(); i++) {
+            int edge = edge(node, prefix.charAt(i));
+            if (edge < 0) return results;
+            weight += edgeOutput[edge];
+            node = edgeTarget[edge];
+        }
+
+        PriorityQueue<Candidate> queue = new PriorityQueue<>();
+        queue.add(new Candidate(prefix.toString(), node, weight, weight + maxWeight[node]));
+
+        while (!queue.isEmpty() && results.size() < k) {
+
+            Candidate candidate = queue.poll();
+
+            if (candidate.node < 0) {
+                results.add(new WeightedWord(candidate.word, candidate.bound));
+                continue;
+            }
+
+            if (terminal.get(candidate.node)) {
+                long complete = candidate.weight + finalOutput[candidate.node];
+                queue.add(new Candidate(candidate.word, -1, complete, complete));
+            }
+
+            for (int edge = firstEdge[candidate.node]; edge < firstEdge[candidate.node + 1]; edge++) {
+                int child = edgeTarget[edge];
+                long childWeight = candidate.weight + edgeOutput[edge];
+                queue.add(new Candidate(candidate.word + edgeLabels[edge], child, childWeight,
+                        childWeight + maxWeight[child]));
+            }
+        }
+
+        return results;
+    }
+
+    //a word or partial word waiting in topK's queue. node is -1 once the word is complete, and bound is then its
+    //weight.
+    private static final class Candidate implements Comparable<Candidate> {
+
+        final String word;
+        final int node;
+        final long weight;
+        final long bound;
+
+        Candidate(String word, int node, long weight, long bound) {
+            this.word = word;
+            this.node = node;
+            this.weight = weight;
+            this.bound = bound;
+        }
+
+        //heaviest first. On a tie, the alphabetically smaller word goes first, since a partial word sorts before every
+        //word it can become, and a complete word before the partial word it's equal to.
+        @Override
+        public int compareTo(Candidate that) {
+            if (this.bound != that.bound) return this.bound > that.bound ? -1 : 1;
+            int order = this.word.compareTo(that.word);
+            if (order != 0) return order;
+            return Boolean.compare(this.node >= 0, that.node >= 0);
+        }
+    }
+
+    //the edge of the node with the label, or -1 if it doesn't have one
+    private int edge(int node, char label) {
+        int found = Arrays.binarySearch(edgeLabels, firstEdge[node], firstEdge[node + 1], label);
+        return found < 0 ? -1 : found;
+    }
+
+    //the number of words in the dictionary
+    public int size() {
+        return size;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getEdgeCount() {
+        return firstEdge[nodeCount];
+    }
+
+}
@@ -0,0 +1,150 @@
+package DAWG;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+//builds a WeightedDAWG one word at a time from words that are already in sorted order, each with its weight. Like
+//DAWGBuilder, the graph is minimized as it goes, so only the path of the last word added can still change.
+//
+//The outputs are pushed as close to the root as they can go: when a word is added, each edge along the prefix it
+//shares with the last word keeps only the smaller of its output and what's left of the new word's weight, and the
+//difference is passed down to the edges below it. Words that share a prefix then share the output for it too, and the
+//nodes below end up with small outputs that are more often the same, so more of them can be merged.
+//
+//An output is the difference between two weights, so weights that are further apart than a long can hold can't be
+//stored. add and build throw an IllegalArgumentException when that happens, and the builder can't be used after it.
+public class WeightedDAWGBuilder {
+
+    //minimized nodes, one for each structure
+    private final Map<WeightedNode, WeightedNode> registry = new HashMap<>();
+
+    //path[i] is the node reached after the first i letters of the last word. path[0] is the root.
+    private WeightedNode[] path = new WeightedNode[16];
+    private char[] lastWord = new char[16];
+    private int lastLength;
+    private int wordCount;
+
+    private boolean built;
+
+    public WeightedDAWGBuilder() {
+        path[0] = new WeightedNode();
+    }
+
+    //adds the next word. Words have to come in sorted order (the order String.compareTo gives), and each only once.
+    public WeightedDAWGBuilder add(CharSequence word, long weight) {
+        try {
+            return addWord(word, weight);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("the weight of \"" + word
+                    + "\" is too far from the weights of the words before it", e);
+        }
+    }
+
+    private WeightedDAWGBuilder addWord(CharSequence word, long weight) {
+
+        if (built) throw new IllegalStateException("build() has already been called");
+
+        int length = word.length();
+        int common = 0;
+        while (common < length && common < lastLength && word.charAt(common) == lastWord[common]) {
+            common++;
+        }
+
+        if (wordCount > 0 && common == length && common == lastLength) {
+            throw new IllegalArgumentException("\"" + word + "\" was added twice");
+        }
+
+        if (common < lastLength && (common == length || word.charAt(common) < lastWord[common])) {
+            throw new IllegalArgumentException("words must be added in sorted order, but \"" + word
+                    + "\" came after \"" + new String(lastWord, 0, lastLength) + "\"");
+        }
+
+        //nothing can be added below the common prefix any more, so the rest of the last word's path is final
+        minimize(common);
+
+        if (length >= path.length) {
+            path = Arrays.copyOf(path, Math.max(length + 1, path.length * 2));
+            lastWord = Arrays.copyOf(lastWord, path.length);
+        }
+
+        for (int i = common; i < length; i++) {
+            char letter = word.charAt(i);
+            WeightedNode next = new WeightedNode();
+            path[i].addEdge(letter, next);
+            path[i + 1] = next;
+            lastWord[i] = letter;
+        }
+
+        path[length].terminal = true;
+
+        //each shared edge keeps what it has in common with the new weight and hands the rest of its old output down
+        long output = weight;
+        for (int i = 0; i < common; i++) {
+            WeightedNode node = path[i];
+            long lastOutput = node.lastOutput();
+            long shared = Math.min(lastOutput, output);
+            if (shared != lastOutput) {
+                node.setLastOutput(shared);
+                path[i + 1].prependOutput(Math.subtractExact(lastOutput, shared));
+            }
+            output = Math.subtractExact(output, shared);
+        }
+
+        //whatever is left goes on the first edge the new word doesn't share. Only an empty first word has none.
+        if (common < length) path[common].setLastOutput(output);
+        else path[length].finalOutput = output;
+
+        lastLength = length;
+        wordCount++;
+
+        return this;
+    }
+
+    //adds every word of a map whose keys are already sorted, such as a TreeMap
+    public WeightedDAWGBuilder addAll(Map<? extends CharSequence, Long> sortedWeights) {
+        for (Map.Entry<? extends CharSequence, Long> entry : sortedWeights.entrySet()) {
+            add(entry.getKey(), entry.getValue());
+        }
+        return this;
+    }
+
+    public WeightedDAWG build() {
+        return new WeightedDAWG(finish(), wordCount);
+    }
+
+    //minimizes whatever is left of the last word and returns the root. The root itself is never registered.
+    WeightedNode finish() {
+
+        if (built) throw new IllegalStateException("build() has already been called");
+
+        try {
+            minimize(0);
+            path[0].freeze();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("the weights are too far apart", e);
+        }
+        built = true;
+
+        return path[0];
+    }
+
+    //registers the nodes of the last word's path below the given depth, deepest first, replacing each one with an
+    //equivalent node if the registry already has one
+    private void minimize(int depth) {
+
+        for (int i = lastLength; i > depth; i--) {
+
+            WeightedNode child = path[i];
+            child.freeze();
+            WeightedNode registered = registry.putIfAbsent(child, child);
+
+            if (registered != null) {
+                path[i - 1].setLastTarget(registered);
+            }
+        }
+
+        lastLength = depth;
+    }
+
+}
@@ -0,0 +1,108 @@
+package DAWG;
+
+import java.util.Arrays;
+
+//a node of a WeightedDAWG while it's being built. Each edge carries an output, and a word's weight is the sum of the
+//outputs along its path plus the final output of the node it ends at. Like DAWGNode, it's changed in place while it's
+//on the builder's path and mustn't be changed once it's registered.
+final class WeightedNode {
+
+    boolean terminal;
+    long finalOutput;
+
+    //edges in label order. Words arrive sorted, so edges are only ever appended.
+    int size;
+    char[] labels = new char[2];
+    long[] outputs = new long[2];
+    WeightedNode[] targets = new WeightedNode[2];
+
+    //the largest weight any word below this node adds to the outputs on the way here, or Long.MIN_VALUE if no word
+    //does. Set by freeze().
+    long maxWeight = Long.MIN_VALUE;
+
+    private int hash;
+
+    void addEdge(char label, WeightedNode target) {
+        if (size == labels.length) {
+            labels = Arrays.copyOf(labels, 2 * size);
+            outputs = Arrays.copyOf(outputs, 2 * size);
+            targets = Arrays.copyOf(targets, 2 * size);
+        }
+        labels[size] = label;
+        targets[size] = target;
+        size++;
+    }
+
+    long lastOutput() {
+        return outputs[size - 1];
+    }
+
+    void setLastOutput(long output) {
+        outputs[size - 1] = output;
+    }
+
+    void setLastTarget(WeightedNode target) {
+        targets[size - 1] = target;
+    }
+
+    //adds to the weight of every word below this node. Throws an ArithmeticException if an output overflows.
+    void prependOutput(long output) {
+        for (int i = 0; i < size; i++) {
+            outputs[i] = Math.addExact(outputs[i], output);
+        }
+        if (terminal) finalOutput = Math.addExact(finalOutput, output);
+    }
+
+    //trims the edges and works out the max weight and hash, once every child is registered. Throws an
+    //ArithmeticException if the max weight overflows.
+    void freeze() {
+
+        if (labels.length != size) {
+            labels = Arrays.copyOf(labels, size);
+            outputs = Arrays.copyOf(outputs, size);
+            targets = Arrays.copyOf(targets, size);
+        }
+
+        maxWeight = terminal ? finalOutput : Long.MIN_VALUE;
+        int h = terminal ? Long.hashCode(finalOutput) * 31 + 1 : 0;
+
+        for (int i = 0; i < size; i++) {
+            maxWeight = Math.max(maxWeight, Math.addExact(outputs[i], targets[i].maxWeight));
+            h = h * 31 + labels[i];
+            h = h * 31 + Long.hashCode(outputs[i]);
+            h = h * 31 + System.identityHashCode(targets[i]);
+        }
+
+        hash = h;
+    }
+
+    //two nodes are the same if they end the same words with the same outputs, going by the identity of their children,
+    //which are registered already
+    @Override
+    public boolean equals(Object o) {
+
+        if (this == o) return true;
+        if (!(o instanceof WeightedNode)) return false;
+
+        WeightedNode that = (WeightedNode) o;
+
+        if (this.hash != that.hash || this.terminal != that.terminal || this.finalOutput != that.finalOutput
+                || this.size != that.size) {
+            return false;
+        }
+
+        for (int i = 0; i < size; i++) {
+            if (labels[i] != that.labels[i] || outputs[i] != that.outputs[i] || targets[i] != that.targets[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+}
@@ -0,0 +1,27 @@
+package DAWG;
+
+//a word found by WeightedDAWG.topK along with its weight
+public class WeightedWord {
+
+    private final String word;
+    private final long weight;
+
+    WeightedWord(String word, long weight) {
+        this.word = word;
+        this.weight = weight;
+    }
+
+    public String getWord() {
+        return word;
+    }
+
+    public long getWeight() {
+        return weight;
+    }
+
+    @Override
+    public String toString() {
+        return word + " (" + weight + ")";
+    }
+
+}
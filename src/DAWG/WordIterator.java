@@ -0,0 +1,151 @@
+package DAWG;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+//walks every word at or below a node, depth first, without recursion. The letters of the current path live in one
+//reusable buffer, and the stack holds the edges still left to visit at each depth, so the only things allocated per
+//word are the String itself and one edge iterator per node visited.
+class WordIterator implements Iterator<String> {
+
+    private char[] word;
+    //the number of letters in the buffer that belong to the prefix leading to the starting node
+    private final int prefixLength;
+
+    private Iterator<DAWGEdge>[] stack;
+    private int depth;
+
+    private String next;
+
+    //words from this one on (compared as whole words) end the iteration. null means there's no upper bound.
+    private final CharSequence to;
+
+    WordIterator(DAWGNode start, CharSequence prefix) {
+        this(start, prefix, "", null);
+    }
+
+    //walks the words at or below start, which the prefix leads to, that come at or after prefix + from and before to
+    WordIterator(DAWGNode start, CharSequence prefix, CharSequence from, CharSequence to) {
+
+        this.to = to;
+
+        prefixLength = prefix.length();
+        word = new char[prefixLength + from.length() + 16];
+        for (int i = 0; i < prefixLength; i++) {
+            word[i] = prefix.charAt(i);
+        }
+
+        stack = newStack(from.length() + 16);
+        stack[0] = start.iterator();
+        depth = 0;
+
+        next = bounded(seek(start, from));
+    }
+
+    //positions the stack just after the first word that is at or after prefix + from and returns that word. Edges
+    //that sort before from are skipped without being descended into, so this only costs the length of from.
+    private String seek(DAWGNode start, CharSequence from) {
+
+        DAWGNode node = start;
+
+        for (int i = 0; i < from.length(); i++) {
+
+            char letter = from.charAt(i);
+            Iterator<DAWGEdge> edges = stack[depth];
+            DAWGEdge child = null;
+
+            while (edges.hasNext()) {
+                child = edges.next();
+                if (child.edge >= letter) break;
+                child = null;
+            }
+
+            //everything below this node sorts before from
+            if (child == null) return advance();
+
+            push(child);
+            node = child.node;
+
+            //this edge already sorts after from, so the first word below it is the first word in range
+            if (child.edge > letter) return node.isTerminal() ? currentWord() : advance();
+        }
+
+        return node.isTerminal() ? currentWord() : advance();
+    }
+
+    //there's no way to create an array of a generic type without a raw one
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Iterator<DAWGEdge>[] newStack(int size) {
+        return new Iterator[size];
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    @Override
+    public String next() {
+
+        if (next == null) throw new NoSuchElementException();
+
+        String current = next;
+        next = bounded(advance());
+        return current;
+    }
+
+    //finds the next terminal node in depth-first order, or returns null once the whole subgraph has been visited
+    private String advance() {
+
+        while (depth >= 0) {
+
+            Iterator<DAWGEdge> edges = stack[depth];
+
+            if (!edges.hasNext()) {
+                depth--;
+                continue;
+            }
+
+            DAWGEdge child = edges.next();
+            push(child);
+
+            if (child.node.isTerminal()) return currentWord();
+        }
+
+        return null;
+    }
+
+    private void push(DAWGEdge child) {
+
+        if (depth + 1 >= stack.length) {
+            stack = Arrays.copyOf(stack, 2 * stack.length);
+        }
+        if (prefixLength + depth >= word.length) {
+            word = Arrays.copyOf(word, 2 * word.length);
+        }
+
+        word[prefixLength + depth] = child.edge;
+        stack[++depth] = child.node.iterator();
+    }
+
+    private String currentWord() {
+        return new String(word, 0, prefixLength + depth);
+    }
+
+    //words come out in sorted order, so the first one past the upper bound ends the iteration
+    private String bounded(String word) {
+
+        if (word == null || to == null) return word;
+
+        int length = Math.min(word.length(), to.length());
+        for (int i = 0; i < length; i++) {
+            if (word.charAt(i) != to.charAt(i)) {
+                return word.charAt(i) < to.charAt(i) ? word : null;
+            }
+        }
+
+        return word.length() < to.length() ? word : null;
+    }
+
+}
@@ -0,0 +1,94 @@
+package DAWG;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+//a spliterator over all the words of a graph. It splits at the root's edges, handing whole first-letter subgraphs to
+//each half, which is what lets words() run as a parallel stream.
+class WordSpliterator implements Spliterator<String> {
+
+    private final DAWGEdge[] rootEdges;
+    private int from;
+    private final int to;
+
+    //set if the root is terminal and the empty word hasn't been handed out yet
+    private boolean emptyWord;
+
+    //the words below the root edge that is currently being walked
+    private Iterator<String> current;
+
+    WordSpliterator(DAWGNode root) {
+
+        rootEdges = new DAWGEdge[root.numChildren()];
+        int i = 0;
+        for (DAWGEdge child : root) {
+            rootEdges[i++] = child;
+        }
+
+        from = 0;
+        to = rootEdges.length;
+        emptyWord = root.isTerminal();
+    }
+
+    private WordSpliterator(DAWGEdge[] rootEdges, int from, int to, boolean emptyWord, Iterator<String> current) {
+        this.rootEdges = rootEdges;
+        this.from = from;
+        this.to = to;
+        this.emptyWord = emptyWord;
+        this.current = current;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super String> action) {
+
+        if (emptyWord) {
+            emptyWord = false;
+            action.accept("");
+            return true;
+        }
+
+        while (current == null || !current.hasNext()) {
+            if (from >= to) return false;
+            DAWGEdge child = rootEdges[from++];
+            current = new WordIterator(child.node, String.valueOf(child.edge));
+        }
+
+        action.accept(current.next());
+        return true;
+    }
+
+    //hands the first half of the remaining root edges, along with anything already in progress, to a new spliterator
+    @Override
+    public Spliterator<String> trySplit() {
+
+        int mid = (from + to) >>> 1;
+        if (mid <= from) return null;
+
+        WordSpliterator prefix = new WordSpliterator(rootEdges, from, mid, emptyWord, current);
+
+        from = mid;
+        emptyWord = false;
+        current = null;
+
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    //words come out in their natural order
+    @Override
+    public Comparator<? super String> getComparator() {
+        return null;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | NONNULL | SORTED;
+    }
+
+}